@@ -0,0 +1,8 @@
+package org.example;
+
+import java.util.List;
+
+// heldSeats: released seats already locked for the user, empty when the user was admitted to pick seats.
+// Either way the user may call WaitingRoom.lockSeats until admittedUntil.
+record Admission(Show show, User user, List<Seat> heldSeats, long admittedUntil) {
+}
@@ -0,0 +1,183 @@
+package org.example;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// doBooking without a blocked thread per booking: lock -> payment -> confirm or compensate, chained on
+// CompletableFutures. While the payment is out nothing runs for the booking, so threads stay at the size of
+// the executor however many bookings are in flight.
+// - a payment not answered within paymentTimeoutMillis fails the booking and releases the seats; if the charge
+//   still goes through later it is refunded
+// - a declined payment releases the seats
+// - paid bookings whose locks expired meanwhile, or that the booking recorder fails to record, are refunded
+// - at most maxInFlightPerShow bookings per show run at once, the rest are rejected right away instead of
+//   queueing behind a sold out show
+// paymentTimeoutMillis should stay below the lock provider's lock timeout.
+class AsyncBookingService {
+    private final UserService userService;
+    private final SeatLockProvider seatLockProvider;
+    private final PaymentGateway paymentGateway;
+    private final HashedTimingWheel timeouts;
+    private final Executor executor;
+    private final long paymentTimeoutMillis;
+    private final int maxInFlightPerShow;
+    private final Map<Show, AtomicInteger> inFlight;
+    private final BookingRecorder bookingRecorder;
+
+    AsyncBookingService(UserService userService, SeatLockProvider seatLockProvider, PaymentGateway paymentGateway,
+                        HashedTimingWheel timeouts, Executor executor, long paymentTimeoutMillis, int maxInFlightPerShow) {
+        this(userService, seatLockProvider, paymentGateway, timeouts, executor, paymentTimeoutMillis, maxInFlightPerShow,
+                new InMemoryBookingRecorder());
+    }
+
+    AsyncBookingService(UserService userService, SeatLockProvider seatLockProvider, PaymentGateway paymentGateway,
+                        HashedTimingWheel timeouts, Executor executor, long paymentTimeoutMillis, int maxInFlightPerShow,
+                        BookingRecorder bookingRecorder) {
+        this.userService = userService;
+        this.seatLockProvider = seatLockProvider;
+        this.paymentGateway = paymentGateway;
+        this.timeouts = timeouts;
+        this.executor = executor;
+        this.paymentTimeoutMillis = paymentTimeoutMillis;
+        this.maxInFlightPerShow = maxInFlightPerShow;
+        this.inFlight = new ConcurrentHashMap<>();
+        this.bookingRecorder = bookingRecorder;
+    }
+
+    public CompletableFuture<BookingResult> book(Show show, List<Seat> seats, String userId) {
+        return start(show, seats, userId, true);
+    }
+
+    // for seats the user already holds locks on, e.g. seats offered by the WaitingRoom
+    public CompletableFuture<BookingResult> checkout(Show show, List<Seat> seats, String userId) {
+        return start(show, seats, userId, false);
+    }
+
+    private CompletableFuture<BookingResult> start(Show show, List<Seat> seats, String userId, boolean lock) {
+        Optional<User> user = userService.getUserById(userId);
+        if(user.isEmpty()) {
+            return CompletableFuture.failedFuture(new RuntimeException("No User found.."));
+        }
+
+        AtomicInteger running = inFlight.computeIfAbsent(show, s -> new AtomicInteger());
+        if(running.incrementAndGet() > maxInFlightPerShow) {
+            running.decrementAndGet();
+            return CompletableFuture.completedFuture(new BookingResult(BookingStatus.REJECTED_BUSY, userId, seats));
+        }
+
+        CompletableFuture<BookingResult> result;
+        try {
+            if(lock) {
+                seatLockProvider.lockSeats(show, seats, user.get());
+            } else {
+                for(Seat seat: seats) {
+                    if(!seatLockProvider.validateLock(show, seat, user.get())) {
+                        throw new RuntimeException("Lock expired");
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            running.decrementAndGet();
+            return result(BookingStatus.SEATS_UNAVAILABLE, user.get(), seats);
+        }
+        try {
+            result = pay(show, seats, user.get());
+        } catch (RuntimeException e) {
+            // the gateway or the timeout wheel refused the payment, the seats we locked go back
+            if(lock) release(show, seats, user.get());
+            result = result(BookingStatus.PAYMENT_FAILED, user.get(), seats);
+        }
+        return result.whenComplete((booking, failure) -> running.decrementAndGet());
+    }
+
+    private CompletableFuture<BookingResult> pay(Show show, List<Seat> seats, User user) {
+        CompletableFuture<Boolean> charge = paymentGateway.charge(user, show, seats);
+        CompletableFuture<Boolean> answered = new CompletableFuture<>();
+        charge.whenComplete((paid, failure) -> {
+            if(failure != null) {
+                answered.completeExceptionally(failure);
+            } else {
+                answered.complete(paid);
+            }
+        });
+        HashedTimingWheel.Timeout timeout;
+        try {
+            timeout = timeouts.schedule(paymentTimeoutMillis,
+                    () -> answered.completeExceptionally(new TimeoutException("Payment timed out")));
+        } catch (RuntimeException e) {
+            // the charge is already out, whatever it takes is given back
+            charge.thenAccept(lateCharge -> {
+                if(lateCharge) paymentGateway.refund(user, show, seats);
+            });
+            throw e;
+        }
+
+        return answered.handleAsync((paid, failure) -> {
+            timeout.cancel();
+            if(failure != null) {
+                release(show, seats, user);
+                if(failure instanceof TimeoutException) {
+                    // the gateway may still charge after we gave up
+                    charge.thenAccept(lateCharge -> {
+                        if(lateCharge) paymentGateway.refund(user, show, seats);
+                    });
+                    return result(BookingStatus.PAYMENT_TIMED_OUT, user, seats);
+                }
+                return result(BookingStatus.PAYMENT_FAILED, user, seats);
+            }
+            if(!paid) {
+                release(show, seats, user);
+                return result(BookingStatus.PAYMENT_FAILED, user, seats);
+            }
+            return confirm(show, seats, user);
+        }, executor).thenCompose(booking -> booking);
+    }
+
+    // completes once the booking recorder has the booking
+    private CompletableFuture<BookingResult> confirm(Show show, List<Seat> seats, User user) {
+        for(Seat seat: seats) {
+            if(!seatLockProvider.validateLock(show, seat, user)) {
+                release(show, seats, user);
+                paymentGateway.refund(user, show, seats);
+                return result(BookingStatus.LOCK_EXPIRED, user, seats);
+            }
+        }
+        CompletableFuture<Void> recorded;
+        try {
+            recorded = bookingRecorder.book(show, seats, user);
+        } catch (RuntimeException e) {
+            recorded = CompletableFuture.failedFuture(e);
+        }
+        return recorded.handle((ignored, failure) -> {
+            if(failure == null) {
+                return new BookingResult(BookingStatus.CONFIRMED, user.getId(), seats);
+            }
+            release(show, seats, user);
+            paymentGateway.refund(user, show, seats);
+            return new BookingResult(BookingStatus.RECORD_FAILED, user.getId(), seats);
+        });
+    }
+
+    private static CompletableFuture<BookingResult> result(BookingStatus status, User user, List<Seat> seats) {
+        return CompletableFuture.completedFuture(new BookingResult(status, user.getId(), seats));
+    }
+
+    private void release(Show show, List<Seat> seats, User user) {
+        try {
+            seatLockProvider.unlockSeats(show, seats, user);
+        } catch (RuntimeException e) {
+            // some of the seats were already taken over after expiring, the rest are released
+        }
+    }
+
+    public int getInFlight(Show show) {
+        AtomicInteger running = inFlight.get(show);
+        return running == null ? 0 : running.get();
+    }
+}
@@ -0,0 +1,701 @@
+package org.example;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Plain main() harness, run with: java -cp target/classes org.example.BookMyShowBenchmark [flashsale|availability|expiry|pipeline|index|browse|waitlist|ledger]
+public class BookMyShowBenchmark {
+    private static final int ROWS = 100;
+    private static final int SEATS_PER_ROW = 50;
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "flashsale";
+        switch (mode) {
+            case "flashsale" -> flashSale();
+            case "availability" -> availability();
+            case "expiry" -> expiry();
+            case "pipeline" -> pipeline();
+            case "index" -> index();
+            case "browse" -> browse();
+            case "waitlist" -> waitlist();
+            case "ledger" -> ledger();
+            default -> System.err.println("Unknown mode " + mode);
+        }
+    }
+
+    static Show newShow(int rows, int seatsPerRow) {
+        List<Seat> seats = new ArrayList<>();
+        for(int row = 0; row < rows; row++) {
+            SeatType seatType = row < rows / 5 ? SeatType.GOLD : row < rows / 2 ? SeatType.SILVER : SeatType.NORMAL;
+            for(int number = 0; number < seatsPerRow; number++) {
+                seats.add(new Seat(row + "-" + number, seatType));
+            }
+        }
+        return new Show("Flash Sale", 0, 0, seats, null);
+    }
+
+    // 10k users released at once onto one show, each locking 1-4 adjacent seats.
+    // "hot": everybody wants the first 20 rows, so most requests conflict.
+    // "spread": requests cover the whole hall, which is where a per show monitor serializes for nothing.
+    private static void flashSale() throws InterruptedException {
+        int users = 10_000;
+        System.out.println("provider | demand | locked | conflicts | ms | p50 us | p99 us");
+        for(int round = 0; round < 3; round++) {
+            boolean last = round == 2;
+            for(String demand: new String[]{"hot", "spread"}) {
+                run("monitor", demand, users, last, SeatLockProviderImplementation::new);
+                run("striped", demand, users, last, StripedSeatLockProvider::new);
+            }
+        }
+    }
+
+    // a 5000 seat show with 30% booked and 5% locked: the old list filtering against the bitsets
+    private static void availability() {
+        Show show = newShow(ROWS, SEATS_PER_ROW);
+        SeatLockProvider provider = new StripedSeatLockProvider(60_000);
+        Random random = new Random(7);
+        User holder = new User("holder", "holder");
+        for(Seat seat: show.getSeats()) {
+            double roll = random.nextDouble();
+            if(roll < 0.30) {
+                show.bookSeat(seat);
+            } else if(roll < 0.35) {
+                provider.lockSeats(show, List.of(seat), holder);
+            }
+        }
+
+        List<Seat> expected = listFilter(show, provider);
+        if(!expected.equals(show.getAvailableSeats()) || expected.size() != show.countAvailableSeats()) {
+            throw new IllegalStateException("bitset availability differs from the list scan");
+        }
+        for(SeatType seatType: SeatType.values()) {
+            for(int count = 1; count <= 8; count++) {
+                if(!naiveAdjacent(show, expected, seatType, count).equals(show.findAdjacentSeats(seatType, count))) {
+                    throw new IllegalStateException("adjacent scan differs for " + seatType + " x" + count);
+                }
+            }
+        }
+
+        System.out.println(expected.size() + " of " + show.getSeats().size() + " seats available");
+        System.out.println("query | ns/op");
+        for(int round = 0; round < 3; round++) {
+            boolean last = round == 2;
+            time("list filter", last, 200, () -> listFilter(show, provider).size());
+            time("bitset list", last, 20_000, () -> show.getAvailableSeats().size());
+            time("bitset count", last, 200_000, show::countAvailableSeats);
+            time("adjacent x6 NORMAL", last, 200_000, () -> show.findAdjacentSeats(SeatType.NORMAL, 6).size());
+        }
+    }
+
+    // 20k seats locked with a 300 ms timeout, then nobody touches the show again:
+    // how long past their deadline the seats come back, and what the lazily expiring provider still reports
+    private static void expiry() throws InterruptedException {
+        int timeout = 300;
+        Show show = newShow(400, SEATS_PER_ROW);
+        Show lazyShow = newShow(400, SEATS_PER_ROW);
+        StripedSeatLockProvider provider = new StripedSeatLockProvider(timeout);
+        SeatLockProvider lazy = new SeatLockProviderImplementation();
+        List<Long> lags = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger events = new AtomicInteger();
+        Map<User, Long> deadlines = new ConcurrentHashMap<>();
+        provider.addReleaseListener((released, seats, holder, reason) -> {
+            events.incrementAndGet();
+            long lag = System.currentTimeMillis() - deadlines.get(holder);
+            for(int i = 0; i < seats.size(); i++) lags.add(lag);
+        });
+
+        long start = System.currentTimeMillis();
+        for(int i = 0; i < show.getSeats().size(); i += 4) {
+            User user = new User("user-" + i, "user-" + i);
+            deadlines.put(user, System.currentTimeMillis() + timeout);
+            provider.lockSeats(show, show.getSeats().subList(i, i + 4), user);
+            lazy.lockSeats(lazyShow, lazyShow.getSeats().subList(i, i + 4), user);
+        }
+        long lockedIn = System.currentTimeMillis() - start;
+
+        while(show.countAvailableSeats() < show.getSeats().size()) {
+            Thread.sleep(1);
+        }
+        long freeAfter = System.currentTimeMillis() - start;
+        Thread.sleep(20);
+
+        List<Long> sorted = new ArrayList<>(lags);
+        Collections.sort(sorted);
+        System.out.printf("locked %d seats in %d ms, lock timeout %d ms%n", show.getSeats().size(), lockedIn, timeout);
+        System.out.printf("wheel: all seats available %d ms after locking started, %d release events%n", freeAfter, events.get());
+        System.out.printf("wheel: seat release lag past its deadline p50 %d ms, p99 %d ms, max %d ms%n",
+                sorted.get(sorted.size() / 2), sorted.get(sorted.size() * 99 / 100), sorted.get(sorted.size() - 1));
+        System.out.printf("lazy: %d seats still reported locked, %d available%n",
+                lazy.getLockedSeats(lazyShow).size(), lazyShow.countAvailableSeats());
+    }
+
+    // 30k bookings started at once on 10 shows against a 1 s payment gateway, with 5% slow payments that
+    // time out and 3% declines, executed by a 4 thread pool
+    private static void pipeline() throws InterruptedException {
+        int shows = 10;
+        int bookingsPerShow = 3_000;
+        HashedTimingWheel wheel = new HashedTimingWheel(10, 512);
+        SimulatedPaymentGateway gateway = new SimulatedPaymentGateway(wheel, 1_000, 0.03, 0.05);
+        List<User> users = new ArrayList<>();
+        for(int i = 0; i < 1_000; i++) {
+            users.add(new User("user-" + i, "user-" + i));
+        }
+        UserService userService = new UserService(users);
+        StripedSeatLockProvider provider = new StripedSeatLockProvider(5_000, wheel);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AsyncBookingService bookingService = new AsyncBookingService(userService, provider, gateway, wheel, executor,
+                2_000, 1_500);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int threadsBefore = threads.getThreadCount();
+        List<Show> showList = new ArrayList<>();
+        List<CompletableFuture<BookingResult>> bookings = new ArrayList<>();
+        Random random = new Random(3);
+        long start = System.nanoTime();
+        for(int s = 0; s < shows; s++) {
+            Show show = newShow(ROWS, SEATS_PER_ROW);
+            showList.add(show);
+            for(int i = 0; i < bookingsPerShow; i++) {
+                // mostly distinct pairs, some collide
+                int first = random.nextInt(show.getSeats().size() / 2) * 2;
+                bookings.add(bookingService.book(show, show.getSeats().subList(first, first + 2),
+                        users.get(random.nextInt(users.size())).getId()));
+            }
+        }
+        long submitted = System.nanoTime() - start;
+        int peakInFlight = showList.stream().mapToInt(bookingService::getInFlight).sum();
+        int threadsInFlight = threads.getThreadCount();
+
+        Map<BookingStatus, Integer> statuses = new EnumMap<>(BookingStatus.class);
+        for(CompletableFuture<BookingResult> booking: bookings) {
+            statuses.merge(booking.join().status(), 1, Integer::sum);
+        }
+        long elapsed = System.nanoTime() - start;
+        // slow payments that were given up on answer after 3 s and get refunded
+        Thread.sleep(2_000);
+        executor.shutdown();
+
+        int bookedSeats = showList.stream().mapToInt(show -> show.getBookedSeats().size()).sum();
+        if(bookedSeats != statuses.getOrDefault(BookingStatus.CONFIRMED, 0) * 2) {
+            throw new IllegalStateException("booked " + bookedSeats + " seats for "
+                    + statuses.get(BookingStatus.CONFIRMED) + " confirmed bookings");
+        }
+        System.out.printf("submitted %d bookings in %d ms, %d in flight, threads %d before and %d while in flight%n",
+                bookings.size(), submitted / 1_000_000, peakInFlight, threadsBefore, threadsInFlight);
+        System.out.printf("all completed after %d ms: %s, %d refunds issued%n", elapsed / 1_000_000, statuses,
+                gateway.getRefunds());
+    }
+
+    // 10M users and 100k theatres with 4 shows each, looked up through the indexed services and through the
+    // list scans they replaced. Needs a large heap: java -Xmx3g ...
+    private static void index() throws InterruptedException {
+        int userCount = 10_000_000;
+        int theatreCount = 100_000;
+        long day = 24 * 60 * 60 * 1000L;
+        Random random = new Random(11);
+
+        long start = System.nanoTime();
+        List<User> users = new ArrayList<>(userCount);
+        for(int i = 0; i < userCount; i++) {
+            String id = "user-" + i;
+            users.add(new User(id, id));
+        }
+        UserService userService = new UserService(users);
+        long usersIndexed = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        List<Theatre> theatres = new ArrayList<>(theatreCount);
+        for(int i = 0; i < theatreCount; i++) {
+            List<Show> shows = new ArrayList<>();
+            Theatre theatre = new Theatre("theatre-" + i, "theatre-" + i, List.of(), shows, "city-" + random.nextInt(1_000));
+            for(int j = 0; j < 4; j++) {
+                // 200 movies, starting on the quarter hour over 30 days
+                long startTime = random.nextInt(30 * 96) * day / 96;
+                shows.add(new Show("movie-" + random.nextInt(200), startTime, startTime + day / 12, List.of(), theatre));
+            }
+            theatres.add(theatre);
+        }
+        TheatreService theatreService = new TheatreService(theatres);
+        long theatresIndexed = System.nanoTime() - start;
+        System.out.printf("indexed %d users in %d ms, %d theatres with %d shows in %d ms%n", userCount,
+                usersIndexed / 1_000_000, theatreCount, theatreCount * 4, theatresIndexed / 1_000_000);
+
+        int[] userIds = random.ints(1 << 16, 0, userCount).toArray();
+        int[] theatreIds = random.ints(1 << 16, 0, theatreCount).toArray();
+        AtomicInteger next = new AtomicInteger();
+        System.out.println("query | ns/op");
+        for(int round = 0; round < 3; round++) {
+            boolean last = round == 2;
+            time("user list scan", last, 5, () -> {
+                String userId = "user-" + userIds[next.incrementAndGet() & 0xFFFF];
+                return users.stream().filter(user -> user.getId().equals(userId)).findFirst().isPresent() ? 1 : 0;
+            });
+            time("user by id", last, 1_000_000, () ->
+                    userService.getUserById("user-" + userIds[next.incrementAndGet() & 0xFFFF]).isPresent() ? 1 : 0);
+            time("theatre list scan", last, 50, () -> {
+                String theatreId = "theatre-" + theatreIds[next.incrementAndGet() & 0xFFFF];
+                return theatres.stream().filter(theatre -> theatre.getId().equals(theatreId))
+                        .findFirst().get().getShows().size();
+            });
+            time("shows in theatre", last, 1_000_000, () ->
+                    theatreService.allShowsInTheatre("theatre-" + theatreIds[next.incrementAndGet() & 0xFFFF]).size());
+            time("theatres in city", last, 100_000, () ->
+                    theatreService.getTheatresInLocation("city-" + (next.incrementAndGet() % 1_000)).size());
+            time("shows of movie", last, 10_000, () ->
+                    theatreService.getShowsOfMovie("movie-" + (next.incrementAndGet() % 200)).size());
+            time("shows in 1 hour", last, 10_000, () -> {
+                long from = (next.incrementAndGet() % (30 * 24)) * day / 24;
+                return theatreService.getShowsStartingBetween(from, from + day / 24).size();
+            });
+        }
+
+        // writers adding and removing theatres while readers query the same indexes
+        int writers = 4;
+        int perWriter = 10_000;
+        ExecutorService pool = Executors.newFixedThreadPool(writers * 2);
+        CountDownLatch done = new CountDownLatch(writers);
+        AtomicInteger reads = new AtomicInteger();
+        for(int w = 0; w < writers; w++) {
+            int writer = w;
+            pool.execute(() -> {
+                for(int i = 0; i < perWriter; i++) {
+                    List<Show> shows = new ArrayList<>();
+                    Theatre theatre = new Theatre("extra-" + writer + "-" + i, "extra", List.of(), shows, "city-extra");
+                    shows.add(new Show("movie-extra", -day + i, -day + i + 1, List.of(), theatre));
+                    theatreService.addTheatre(theatre);
+                    if(i % 2 == 1) theatreService.removeTheatre("extra-" + writer + "-" + (i - 1));
+                }
+                done.countDown();
+            });
+            pool.execute(() -> {
+                while(done.getCount() > 0) {
+                    theatreService.getShowsStartingBetween(-day, 0);
+                    theatreService.getTheatresInLocation("city-extra");
+                    reads.incrementAndGet();
+                }
+            });
+        }
+        done.await();
+        pool.shutdown();
+        int expected = writers * perWriter / 2;
+        int inCity = theatreService.getTheatresInLocation("city-extra").size();
+        int ofMovie = theatreService.getShowsOfMovie("movie-extra").size();
+        int inRange = theatreService.getShowsStartingBetween(-day, 0).size();
+        if(inCity != expected || ofMovie != expected || inRange != expected) {
+            throw new IllegalStateException("indexes out of step after concurrent updates: " + inCity + " theatres, "
+                    + ofMovie + " and " + inRange + " shows, expected " + expected);
+        }
+        System.out.printf("%d concurrent adds and %d removes alongside %d reads, indexes consistent%n",
+                writers * perWriter, expected, reads.get());
+    }
+
+    // Browse reads against the availability snapshots of a 5000 seat show, 30% booked, while seats keep being
+    // locked and released: reading the published map vs recomputing it, and what a delta saves over a full list.
+    private static void browse() throws InterruptedException {
+        Show show = newShow(ROWS, SEATS_PER_ROW);
+        StripedSeatLockProvider provider = new StripedSeatLockProvider(60_000);
+        Random random = new Random(5);
+        for(Seat seat: show.getSeats()) {
+            if(random.nextDouble() < 0.30) show.bookSeat(seat);
+        }
+        User holder = new User("holder", "holder");
+        List<Seat> free = show.getAvailableSeats();
+
+        System.out.println("query | ns/op");
+        for(int round = 0; round < 3; round++) {
+            boolean last = round == 2;
+            time("list filter", last, 200, () -> listFilter(show, provider).size());
+            time("live bitset list", last, 20_000, () -> show.getAvailableSeats().size());
+            time("snapshot list", last, 20_000, () -> show.getSeatMap().getAvailableSeats().size());
+            time("snapshot count", last, 200_000, () -> show.getSeatMap().countAvailableSeats());
+            time("snapshot seat", last, 1_000_000, () -> show.getSeatMap().isAvailable(1234) ? 1 : 0);
+            time("lock+unlock", last, 100_000, () -> {
+                List<Seat> seat = List.of(free.get(random.nextInt(free.size())));
+                provider.lockSeats(show, seat, holder);
+                provider.unlockSeats(show, seat, holder);
+                return 1;
+            });
+        }
+
+        long version = show.getSeatMap().getVersion();
+        for(int i = 0; i < 10; i++) {
+            provider.lockSeats(show, List.of(free.get(i * 97)), holder);
+        }
+        provider.unlockSeats(show, List.of(free.get(0)), holder);
+        SeatMapDelta delta = show.getSeatMapChanges(version);
+        SeatMapDelta stale = show.getSeatMapChanges(version - 1_000);
+        System.out.printf("11 changes from version %d to %d: delta of %d freed and %d taken seats, full update %d seats%n",
+                delta.fromVersion(), delta.toVersion(), delta.freed().size(), delta.taken().size(), stale.freed().size());
+
+        // one writer locking, releasing and booking while readers check what they see never goes backwards
+        int readers = 4;
+        AtomicInteger violations = new AtomicInteger();
+        AtomicInteger reads = new AtomicInteger();
+        CountDownLatch writerDone = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(readers + 1);
+        for(int r = 0; r < readers; r++) {
+            pool.execute(() -> {
+                long seen = -1;
+                while(writerDone.getCount() > 0) {
+                    SeatMapSnapshot snapshot = show.getSeatMap();
+                    if(snapshot.getVersion() < seen) violations.incrementAndGet();
+                    seen = snapshot.getVersion();
+                    reads.incrementAndGet();
+                }
+            });
+        }
+        pool.execute(() -> {
+            Random writes = new Random(9);
+            for(int i = 0; i < 20_000; i++) {
+                Seat seat = free.get(writes.nextInt(free.size()));
+                try {
+                    provider.lockSeats(show, List.of(seat), holder);
+                    if(writes.nextInt(10) == 0) {
+                        show.bookSeat(seat);
+                    } else {
+                        provider.unlockSeats(show, List.of(seat), holder);
+                    }
+                } catch (RuntimeException e) {
+                    // already locked or booked
+                }
+            }
+            writerDone.countDown();
+        });
+        writerDone.await();
+        pool.shutdown();
+        if(violations.get() > 0 || !show.getSeatMap().getAvailableSeats().equals(show.getAvailableSeats())) {
+            throw new IllegalStateException("snapshot out of step: " + violations.get() + " version regressions");
+        }
+        System.out.printf("%d reads alongside 20000 writes, versions monotonic, final snapshot %d matches the bitmaps%n",
+                reads.get(), show.getSeatMap().getVersion());
+    }
+
+    // 2000 users after pairs of the 200 seats of a show, a third of the lock holders abandon checkout and their
+    // locks expire after 300 ms. "retry": everybody polls the seat map and retries lockSeats every 20-40 ms.
+    // "room": everybody joins a waiting room admitting 100 users a second, released seats are offered to the line.
+    private static void waitlist() throws InterruptedException {
+        System.out.println("mode  | sold | ms to sell out | lock calls | failed locks | empty polls | offered");
+        for(int round = 0; round < 2; round++) {
+            boolean last = round == 1;
+            waitlistRun("retry", false, last);
+            waitlistRun("room", true, last);
+        }
+    }
+
+    private static void waitlistRun(String name, boolean useRoom, boolean print) throws InterruptedException {
+        int users = 2_000;
+        Show show = newShow(20, 10);
+        HashedTimingWheel wheel = new HashedTimingWheel(10, 512);
+        StripedSeatLockProvider provider = new StripedSeatLockProvider(300, wheel);
+        WaitingRoom room = new WaitingRoom(provider, wheel, 100, 1_000);
+        if(useRoom) provider.addReleaseListener(room);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        AtomicInteger lockCalls = new AtomicInteger();
+        AtomicInteger failedLocks = new AtomicInteger();
+        AtomicInteger emptyPolls = new AtomicInteger();
+        AtomicInteger offered = new AtomicInteger();
+        CountDownLatch soldOut = new CountDownLatch(1);
+
+        class Buyer {
+            final User user;
+            final Random random;
+
+            Buyer(int id) {
+                user = new User("user-" + id, "user-" + id);
+                random = new Random(id);
+            }
+
+            void start() {
+                if(useRoom) {
+                    room.join(show, user, 2).thenAccept(admission -> run(() -> admitted(admission)));
+                } else {
+                    run(this::attempt);
+                }
+            }
+
+            void run(Runnable step) {
+                if(!pool.isShutdown()) pool.execute(step);
+            }
+
+            void admitted(Admission admission) {
+                if(!admission.heldSeats().isEmpty()) {
+                    offered.incrementAndGet();
+                    checkout(admission.heldSeats());
+                } else {
+                    attempt();
+                }
+            }
+
+            void attempt() {
+                if(soldOut.getCount() == 0) return;
+                List<Seat> free = show.getSeatMap().getAvailableSeats();
+                if(free.size() < 2) {
+                    emptyPolls.incrementAndGet();
+                    retry();
+                    return;
+                }
+                int first = random.nextInt(free.size() - 1);
+                List<Seat> wanted = List.of(free.get(first), free.get(first + 1));
+                lockCalls.incrementAndGet();
+                try {
+                    if(useRoom) {
+                        room.lockSeats(show, wanted, user);
+                    } else {
+                        provider.lockSeats(show, wanted, user);
+                    }
+                } catch (RuntimeException e) {
+                    failedLocks.incrementAndGet();
+                    retry();
+                    return;
+                }
+                checkout(wanted);
+            }
+
+            void retry() {
+                if(useRoom) {
+                    start();
+                } else {
+                    wheel.schedule(20 + random.nextInt(20), () -> run(this::attempt));
+                }
+            }
+
+            void checkout(List<Seat> seats) {
+                // abandoned checkouts leave their locks to expire
+                if(random.nextInt(3) == 0) return;
+                wheel.schedule(50, () -> run(() -> {
+                    for(Seat seat: seats) {
+                        show.bookSeat(seat);
+                    }
+                    if(show.getBookedSeats().size() == show.getSeats().size()) soldOut.countDown();
+                }));
+            }
+        }
+
+        long start = System.nanoTime();
+        for(int i = 0; i < users; i++) {
+            new Buyer(i).start();
+        }
+        boolean done = soldOut.await(20, TimeUnit.SECONDS);
+        long elapsed = System.nanoTime() - start;
+        pool.shutdownNow();
+        pool.awaitTermination(1, TimeUnit.SECONDS);
+        room.stop();
+        wheel.stop();
+        if(print) {
+            System.out.printf("%-5s | %4d | %14s | %10d | %12d | %11d | %d%n", name, show.getBookedSeats().size(),
+                    done ? String.valueOf(elapsed / 1_000_000) : "-", lockCalls.get(), failedLocks.get(), emptyPolls.get(),
+                    offered.get());
+        }
+    }
+
+    // Bookings of seat pairs on 20 shows written to a fsynced ledger, one at a time and from 32 threads at once,
+    // then recovered into fresh shows, with a snapshot every 5000 events and without snapshots.
+    private static void ledger() throws IOException, InterruptedException {
+        System.out.println("snapshots | serial bookings/s | concurrent bookings/s | events per fsync | recovery ms | replayed");
+        for(int round = 0; round < 4; round++) {
+            boolean snapshots = round % 2 == 0;
+            Path directory = Files.createTempDirectory("ledger");
+            int snapshotEvery = snapshots ? 5_000 : Integer.MAX_VALUE;
+            Map<String, Show> shows = ledgerShows();
+            BookingLedger ledger = new BookingLedger(directory, shows, snapshotEvery, true);
+            List<String> showIds = new ArrayList<>(shows.keySet());
+            User user = new User("user", "user");
+            AtomicInteger nextPair = new AtomicInteger();
+            Runnable bookNext = () -> {
+                int pair = nextPair.getAndIncrement();
+                Show show = shows.get(showIds.get(pair % showIds.size()));
+                int first = (pair / showIds.size()) * 2;
+                List<Seat> seats = show.getSeats().subList(first, first + 2);
+                ledger.book(show, seats, user).join();
+                // every tenth booking is cancelled again
+                if(pair % 10 == 0) ledger.cancel(show, seats, user).join();
+            };
+
+            int serial = 1_000;
+            long start = System.nanoTime();
+            for(int i = 0; i < serial; i++) {
+                bookNext.run();
+            }
+            double serialRate = serial / ((System.nanoTime() - start) / 1e9);
+
+            int concurrent = 40_000;
+            long commitsBefore = ledger.getCommits();
+            long eventsBefore = ledger.getLastSequence();
+            ExecutorService pool = Executors.newFixedThreadPool(32);
+            CountDownLatch done = new CountDownLatch(concurrent);
+            start = System.nanoTime();
+            for(int i = 0; i < concurrent; i++) {
+                pool.execute(() -> {
+                    bookNext.run();
+                    done.countDown();
+                });
+            }
+            done.await();
+            double concurrentRate = concurrent / ((System.nanoTime() - start) / 1e9);
+            double eventsPerFsync = (ledger.getLastSequence() - eventsBefore) / (double) (ledger.getCommits() - commitsBefore);
+            pool.shutdown();
+            ledger.close();
+
+            // a record torn by a crash mid write
+            List<Path> segments;
+            try(Stream<Path> files = Files.list(directory)) {
+                segments = files.filter(path -> path.toString().endsWith(".log")).sorted().toList();
+            }
+            Files.write(segments.get(segments.size() - 1), new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+            Map<String, Show> recovered = ledgerShows();
+            start = System.nanoTime();
+            BookingLedger reopened = new BookingLedger(directory, recovered, snapshotEvery, true);
+            long recoveryMillis = (System.nanoTime() - start) / 1_000_000;
+            for(String showId: showIds) {
+                if(!Arrays.equals(shows.get(showId).getBookedWords(), recovered.get(showId).getBookedWords())
+                        || !Arrays.equals(shows.get(showId).getBookedBy(), recovered.get(showId).getBookedBy())) {
+                    throw new IllegalStateException("recovered bookings of " + showId + " differ");
+                }
+            }
+            if(reopened.getLastSequence() != ledger.getLastSequence()) {
+                throw new IllegalStateException("recovered up to event " + reopened.getLastSequence() + " of "
+                        + ledger.getLastSequence());
+            }
+            reopened.close();
+            if(round >= 2) System.out.printf("%-9s | %17.0f | %21.0f | %16.1f | %11d | %d of %d%n", snapshots ? "every 5k" : "none",
+                    serialRate, concurrentRate, eventsPerFsync, recoveryMillis, reopened.getReplayedEvents(),
+                    reopened.getLastSequence());
+            try(Stream<Path> files = Files.list(directory)) {
+                for(Path file: files.toList()) Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static Map<String, Show> ledgerShows() {
+        Map<String, Show> shows = new LinkedHashMap<>();
+        for(int i = 0; i < 20; i++) {
+            shows.put("show-" + i, newShow(ROWS, SEATS_PER_ROW));
+        }
+        return shows;
+    }
+
+    // what getAllAvailableSeats did, on a copy so the show's booked list isn't mutated
+    private static List<Seat> listFilter(Show show, SeatLockProvider provider) {
+        List<Seat> inValidSeats = new ArrayList<>(show.getBookedSeats());
+        inValidSeats.addAll(provider.getLockedSeats(show));
+        return show.getSeats().stream().filter(seat -> !inValidSeats.contains(seat)).toList();
+    }
+
+    private static List<Seat> naiveAdjacent(Show show, List<Seat> available, SeatType seatType, int count) {
+        List<Seat> seats = show.getSeats();
+        for(int start = 0; start + count <= seats.size(); start++) {
+            boolean fits = true;
+            for(int i = start; i < start + count && fits; i++) {
+                fits = seats.get(i).getSeatType() == seatType && available.contains(seats.get(i));
+            }
+            if(fits) return seats.subList(start, start + count);
+        }
+        return List.of();
+    }
+
+    private static long sink;
+
+    private static void time(String name, boolean print, int iterations, IntSupplier query) {
+        long start = System.nanoTime();
+        for(int i = 0; i < iterations; i++) {
+            sink += query.getAsInt();
+        }
+        long elapsed = System.nanoTime() - start;
+        if(print) {
+            System.out.printf("%-18s | %d%n", name, elapsed / iterations);
+        }
+    }
+
+    private static void run(String name, String demand, int users, boolean print,
+                            Supplier<SeatLockProvider> providers) throws InterruptedException {
+        Show show = newShow(ROWS, SEATS_PER_ROW);
+        SeatLockProvider provider = providers.get();
+        int rows = demand.equals("hot") ? 20 : ROWS;
+        List<List<Seat>> requests = new ArrayList<>();
+        Random random = new Random(42);
+        for(int i = 0; i < users; i++) {
+            int count = 1 + random.nextInt(4);
+            int row = random.nextInt(rows);
+            int first = random.nextInt(SEATS_PER_ROW - count + 1);
+            List<Seat> wanted = new ArrayList<>();
+            for(int seat = first; seat < first + count; seat++) {
+                wanted.add(show.getSeats().get(row * SEATS_PER_ROW + seat));
+            }
+            requests.add(wanted);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(64);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(users);
+        AtomicInteger locked = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        Map<Seat, User> owners = new ConcurrentHashMap<>();
+        AtomicInteger doubleLocked = new AtomicInteger();
+        long[] latencies = new long[users];
+        for(int i = 0; i < users; i++) {
+            int index = i;
+            User user = new User("user-" + i, "user-" + i);
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    long before = System.nanoTime();
+                    try {
+                        provider.lockSeats(show, requests.get(index), user);
+                        locked.incrementAndGet();
+                        for(Seat seat: requests.get(index)) {
+                            if(owners.putIfAbsent(seat, user) != null) doubleLocked.incrementAndGet();
+                        }
+                    } catch (RuntimeException e) {
+                        conflicts.incrementAndGet();
+                    }
+                    latencies[index] = System.nanoTime() - before;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - began;
+        pool.shutdown();
+
+        if(doubleLocked.get() > 0) {
+            throw new IllegalStateException(name + " handed out " + doubleLocked.get() + " seats twice");
+        }
+        if(show.getSeats().size() - show.countAvailableSeats() != owners.size()) {
+            throw new IllegalStateException(name + " left the show's locked bits out of step with its locks");
+        }
+        if(print) {
+            Arrays.sort(latencies);
+            System.out.printf("%-8s | %-6s | %6d | %9d | %5.1f | %6d | %d%n", name, demand, locked.get(), conflicts.get(),
+                    elapsed / 1e6, latencies[users / 2] / 1000, latencies[users * 99 / 100] / 1000);
+        }
+    }
+}
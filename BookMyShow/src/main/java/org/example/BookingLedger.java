@@ -0,0 +1,566 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+enum LedgerEventType {
+    LOCKED,
+    UNLOCKED,
+    EXPIRED,
+    BOOKED,
+    CANCELLED
+}
+
+// Append-only record of bookings, cancellations and seat locks in a directory:
+// - ledger-<first sequence>.log segments of CRC checked event records
+// - snapshot.bin, the booked seats of every show and who booked them as of one sequence number
+// Bookings and cancellations are applied to the show and appended under one lock, so the log has them in
+// the order they happened. A committer thread writes everything appended while the previous batch was
+// being forced with a single fsync, and the futures of book and cancel complete once their batch is durable.
+// When a write or fsync fails the ledger takes no more events, and bookings and cancellations that never became
+// durable are undone on the shows, so they show what recovery would load.
+// Every snapshotEveryEvents events the committer writes a snapshot, starts a new segment and deletes the
+// older ones, so recovery loads the snapshot and replays the tail only. Lock events are an audit trail:
+// locks run out within minutes and are not restored.
+// Shows are known by the ids they are registered under, and must have no bookings when the ledger opens.
+class BookingLedger implements BookingRecorder, SeatReleaseListener {
+    private static final int SNAPSHOT_MAGIC = 0x4c534e50;
+    private static final String SNAPSHOT = "snapshot.bin";
+
+    private record ShowBookings(long[] words, String[] owners) {
+    }
+
+    // an appended event that isn't durable yet, with what it changed so a failed write can take it back
+    private record Appended(CompletableFuture<Void> durable, Show show, LedgerEventType type, String userId, int[] ordinals) {
+    }
+
+    private final Path directory;
+    private final Map<String, Show> shows;
+    private final Map<Show, String> showIds;
+    private final int snapshotEveryEvents;
+    private final boolean fsync;
+    private final Object appendLock;
+    private final CRC32 crc;
+    private final Thread committer;
+    // guarded by appendLock
+    private ByteBuffer pending;
+    private List<Appended> pendingWaiters;
+    private long lastSequence;
+    private boolean open;
+    private IOException failure;
+    // committer thread only, after the constructor
+    private ByteBuffer writing;
+    private List<Appended> writingWaiters;
+    private FileChannel segment;
+    private long snapshotSequence;
+    private volatile long commits;
+    private final long replayedEvents;
+
+    BookingLedger(Path directory, Map<String, Show> shows, int snapshotEveryEvents, boolean fsync) {
+        this.directory = directory;
+        this.shows = new LinkedHashMap<>(shows);
+        this.showIds = new HashMap<>();
+        for(Map.Entry<String, Show> entry: shows.entrySet()) {
+            showIds.put(entry.getValue(), entry.getKey());
+        }
+        this.snapshotEveryEvents = snapshotEveryEvents;
+        this.fsync = fsync;
+        this.appendLock = new Object();
+        this.crc = new CRC32();
+        this.pending = ByteBuffer.allocate(64 * 1024);
+        this.writing = ByteBuffer.allocate(64 * 1024);
+        this.pendingWaiters = new ArrayList<>();
+        this.writingWaiters = new ArrayList<>();
+        try {
+            Files.createDirectories(directory);
+            this.snapshotSequence = loadSnapshot();
+            this.lastSequence = snapshotSequence;
+            this.replayedEvents = replaySegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.open = true;
+        this.committer = new Thread(this::commitLoop, "ledger-committer");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    @Override
+    public CompletableFuture<Void> book(Show show, List<Seat> seats, User user) {
+        String showId = showId(show);
+        int[] ordinals = ordinals(show, seats);
+        synchronized (appendLock) {
+            checkWritable();
+            for(Seat seat: seats) {
+                if(show.isBooked(seat)) {
+                    throw new RuntimeException("Seat already booked...");
+                }
+            }
+            for(int ordinal: ordinals) {
+                show.book(ordinal, user.getId());
+            }
+            return append(LedgerEventType.BOOKED, show, showId, user.getId(), ordinals);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> cancel(Show show, List<Seat> seats, User user) {
+        String showId = showId(show);
+        int[] ordinals = ordinals(show, seats);
+        synchronized (appendLock) {
+            checkWritable();
+            for(int ordinal: ordinals) {
+                if(!user.getId().equals(show.getBookedBy(ordinal))) {
+                    throw new RuntimeException("Seat is not booked by the user...");
+                }
+            }
+            for(int ordinal: ordinals) {
+                show.cancel(ordinal, user.getId());
+            }
+            return append(LedgerEventType.CANCELLED, show, showId, user.getId(), ordinals);
+        }
+    }
+
+    public CompletableFuture<Void> recordLock(Show show, List<Seat> seats, User user, LedgerEventType type) {
+        String showId = showId(show);
+        int[] ordinals = ordinals(show, seats);
+        synchronized (appendLock) {
+            checkWritable();
+            return append(type, show, showId, user.getId(), ordinals);
+        }
+    }
+
+    // unlocks are recorded by JournaledSeatLockProvider, expiries arrive here
+    @Override
+    public void onSeatsReleased(Show show, List<Seat> seats, User previousHolder, ReleaseReason reason) {
+        if(reason != ReleaseReason.EXPIRED || !showIds.containsKey(show)) return;
+        synchronized (appendLock) {
+            if(!open || failure != null) return;
+            append(LedgerEventType.EXPIRED, show, showIds.get(show), previousHolder.getId(), ordinals(show, seats));
+        }
+    }
+
+    private String showId(Show show) {
+        String showId = showIds.get(show);
+        if(showId == null) {
+            throw new IllegalArgumentException("Show is not registered with the ledger");
+        }
+        return showId;
+    }
+
+    private static int[] ordinals(Show show, List<Seat> seats) {
+        int[] ordinals = new int[seats.size()];
+        for(int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = show.getSeatOrdinal(seats.get(i));
+        }
+        return ordinals;
+    }
+
+    private void checkWritable() {
+        if(failure != null) {
+            throw new UncheckedIOException("Ledger write failed", failure);
+        }
+        if(!open) {
+            throw new IllegalStateException("Ledger is closed");
+        }
+    }
+
+    // record: int body length, body, int CRC32 of the body
+    // body: long sequence, byte type, long time, short + UTF-8 show id, short + UTF-8 user id, int count, int ordinals
+    private CompletableFuture<Void> append(LedgerEventType type, Show target, String showId, String userId, int[] ordinals) {
+        byte[] show = showId.getBytes(StandardCharsets.UTF_8);
+        byte[] user = userId.getBytes(StandardCharsets.UTF_8);
+        int bodyLength = 8 + 1 + 8 + 2 + show.length + 2 + user.length + 4 + 4 * ordinals.length;
+        if(pending.remaining() < bodyLength + 8) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bodyLength + 8));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        boolean wasEmpty = pending.position() == 0;
+        int start = pending.position();
+        pending.putInt(bodyLength)
+                .putLong(++lastSequence)
+                .put((byte) type.ordinal())
+                .putLong(System.currentTimeMillis())
+                .putShort((short) show.length).put(show)
+                .putShort((short) user.length).put(user)
+                .putInt(ordinals.length);
+        for(int ordinal: ordinals) {
+            pending.putInt(ordinal);
+        }
+        crc.reset();
+        crc.update(pending.array(), start + 4, bodyLength);
+        pending.putInt((int) crc.getValue());
+
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        pendingWaiters.add(new Appended(durable, target, type, userId, ordinals));
+        if(wasEmpty) {
+            appendLock.notify();
+        }
+        return durable;
+    }
+
+    private void commitLoop() {
+        while(true) {
+            long snapshotAt = -1;
+            Map<String, ShowBookings> bookedSeats = null;
+            synchronized (appendLock) {
+                while(pending.position() == 0 && open) {
+                    try {
+                        appendLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if(pending.position() == 0) return;
+                ByteBuffer batch = pending;
+                pending = writing;
+                writing = batch;
+                List<Appended> waiters = pendingWaiters;
+                pendingWaiters = writingWaiters;
+                writingWaiters = waiters;
+                // the batch holds every event up to lastSequence and the shows have all of them applied
+                if(lastSequence - snapshotSequence >= snapshotEveryEvents) {
+                    snapshotAt = lastSequence;
+                    bookedSeats = new LinkedHashMap<>();
+                    for(Map.Entry<String, Show> entry: shows.entrySet()) {
+                        Show show = entry.getValue();
+                        bookedSeats.put(entry.getKey(), new ShowBookings(show.getBookedWords(), show.getBookedBy()));
+                    }
+                }
+            }
+            try {
+                writing.flip();
+                while(writing.hasRemaining()) {
+                    segment.write(writing);
+                }
+                writing.clear();
+                if(fsync) {
+                    segment.force(false);
+                }
+                commits++;
+                for(Appended waiter: writingWaiters) {
+                    waiter.durable().complete(null);
+                }
+                writingWaiters.clear();
+                if(bookedSeats != null) {
+                    snapshot(snapshotAt, bookedSeats);
+                }
+            } catch (IOException e) {
+                synchronized (appendLock) {
+                    failure = e;
+                    // nothing after the last durable batch made it to disk, the shows go back to what recovery would load
+                    rollBack(pendingWaiters, e);
+                    rollBack(writingWaiters, e);
+                }
+                return;
+            }
+        }
+    }
+
+    // newest first, called with appendLock held
+    private static void rollBack(List<Appended> events, IOException failure) {
+        for(int i = events.size() - 1; i >= 0; i--) {
+            Appended event = events.get(i);
+            for(int ordinal: event.ordinals()) {
+                if(event.type() == LedgerEventType.BOOKED) {
+                    event.show().cancel(ordinal, event.userId());
+                } else if(event.type() == LedgerEventType.CANCELLED) {
+                    event.show().book(ordinal, event.userId());
+                }
+            }
+        }
+        for(Appended event: events) {
+            event.durable().completeExceptionally(failure);
+        }
+        events.clear();
+    }
+
+    // New segment first, then the snapshot, then the segments it covers go: a crash in between leaves
+    // either the old snapshot with all of its tail or the new one.
+    // per show: short + UTF-8 show id, int word count, the booked words, then short + UTF-8 owner per booked seat
+    private void snapshot(long sequence, Map<String, ShowBookings> bookedSeats) throws IOException {
+        segment.close();
+        segment = openSegment(sequence + 1);
+
+        Map<String, byte[]> owners = new HashMap<>();
+        int size = 4 + 8 + 4;
+        for(Map.Entry<String, ShowBookings> entry: bookedSeats.entrySet()) {
+            long[] words = entry.getValue().words();
+            size += 2 + entry.getKey().getBytes(StandardCharsets.UTF_8).length + 4 + 8 * words.length;
+            for(int ordinal: bookedOrdinals(words)) {
+                String owner = entry.getValue().owners()[ordinal];
+                size += 2 + owners.computeIfAbsent(owner == null ? "" : owner, id -> id.getBytes(StandardCharsets.UTF_8)).length;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size + 4);
+        buffer.putInt(SNAPSHOT_MAGIC).putLong(sequence).putInt(bookedSeats.size());
+        for(Map.Entry<String, ShowBookings> entry: bookedSeats.entrySet()) {
+            byte[] showId = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            long[] words = entry.getValue().words();
+            buffer.putShort((short) showId.length).put(showId).putInt(words.length);
+            for(long word: words) {
+                buffer.putLong(word);
+            }
+            for(int ordinal: bookedOrdinals(words)) {
+                String owner = entry.getValue().owners()[ordinal];
+                byte[] userId = owners.get(owner == null ? "" : owner);
+                buffer.putShort((short) userId.length).put(userId);
+            }
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), 0, size);
+        buffer.putInt((int) checksum.getValue());
+        buffer.flip();
+
+        Path temporary = directory.resolve(SNAPSHOT + ".tmp");
+        try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        snapshotSequence = sequence;
+        for(Path old: segments()) {
+            if(firstSequence(old) <= sequence) {
+                Files.delete(old);
+            }
+        }
+    }
+
+    private long loadSnapshot() throws IOException {
+        Path path = directory.resolve(SNAPSHOT);
+        if(!Files.exists(path)) return 0;
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if(buffer.limit() < 20 || buffer.getInt(0) != SNAPSHOT_MAGIC) {
+            throw new IllegalStateException("Corrupt ledger snapshot " + path);
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), 0, buffer.limit() - 4);
+        if(buffer.getInt(buffer.limit() - 4) != (int) checksum.getValue()) {
+            throw new IllegalStateException("Corrupt ledger snapshot " + path);
+        }
+        buffer.position(4);
+        long sequence = buffer.getLong();
+        int count = buffer.getInt();
+        for(int i = 0; i < count; i++) {
+            String showId = readString(buffer);
+            long[] words = new long[buffer.getInt()];
+            for(int word = 0; word < words.length; word++) {
+                words[word] = buffer.getLong();
+            }
+            Show show = shows.get(showId);
+            String[] owners = show == null ? null : new String[show.getSeats().size()];
+            for(int ordinal: bookedOrdinals(words)) {
+                String owner = readString(buffer);
+                if(owners != null && ordinal < owners.length) {
+                    owners[ordinal] = owner.isEmpty() ? null : owner;
+                }
+            }
+            if(show == null) continue;
+            if(show.getBookedWords().length != words.length) {
+                throw new IllegalStateException("Show " + showId + " has a different seat layout than in the snapshot");
+            }
+            show.restoreBookings(words, owners);
+        }
+        return sequence;
+    }
+
+    // Applies the events after the snapshot and opens the last segment for appending. A record torn by a
+    // crash can only be at the end of the last segment and is cut off.
+    private long replaySegments() throws IOException {
+        List<Path> segments = segments();
+        long replayed = 0;
+        for(int i = 0; i < segments.size(); i++) {
+            Path path = segments.get(i);
+            ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(path));
+            CRC32 checksum = new CRC32();
+            int valid = 0;
+            while(records.remaining() >= 4) {
+                int bodyLength = records.getInt(valid);
+                if(bodyLength <= 0 || records.remaining() < bodyLength + 8) break;
+                checksum.reset();
+                checksum.update(records.array(), valid + 4, bodyLength);
+                if(records.getInt(valid + 4 + bodyLength) != (int) checksum.getValue()) break;
+                records.position(valid + 4);
+                long sequence = records.getLong();
+                LedgerEventType type = LedgerEventType.values()[records.get()];
+                records.getLong();
+                Show show = shows.get(readString(records));
+                String userId = readString(records);
+                int[] ordinals = new int[records.getInt()];
+                for(int o = 0; o < ordinals.length; o++) {
+                    ordinals[o] = records.getInt();
+                }
+                records.getInt();
+                valid = records.position();
+
+                if(sequence <= snapshotSequence) continue;
+                if(sequence != lastSequence + 1) {
+                    throw new IllegalStateException("Ledger event " + (lastSequence + 1) + " is missing in " + path);
+                }
+                lastSequence = sequence;
+                replayed++;
+                if(show == null) continue;
+                for(int ordinal: ordinals) {
+                    if(type == LedgerEventType.BOOKED) {
+                        show.book(ordinal, userId);
+                    } else if(type == LedgerEventType.CANCELLED) {
+                        show.cancel(ordinal, userId);
+                    }
+                }
+            }
+            if(valid < records.limit()) {
+                if(i < segments.size() - 1) {
+                    throw new IllegalStateException("Corrupt ledger segment " + path);
+                }
+                try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                }
+            }
+        }
+        segment = segments.isEmpty() ? openSegment(lastSequence + 1) : openSegment(segments.get(segments.size() - 1));
+        return replayed;
+    }
+
+    private FileChannel openSegment(long firstSequence) throws IOException {
+        return openSegment(directory.resolve(String.format("ledger-%020d.log", firstSequence)));
+    }
+
+    private static FileChannel openSegment(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<Path> segments() throws IOException {
+        try(Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().matches("ledger-\\d{20}\\.log"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring("ledger-".length(), name.length() - ".log".length()));
+    }
+
+    private static int[] bookedOrdinals(long[] words) {
+        int count = 0;
+        for(long word: words) {
+            count += Long.bitCount(word);
+        }
+        int[] ordinals = new int[count];
+        int next = 0;
+        for(int word = 0; word < words.length; word++) {
+            for(long bits = words[word]; bits != 0; bits &= bits - 1) {
+                ordinals[next++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return ordinals;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public long getLastSequence() {
+        synchronized (appendLock) {
+            return lastSequence;
+        }
+    }
+
+    public long getReplayedEvents() {
+        return replayedEvents;
+    }
+
+    // batches written, each with one fsync when fsync is on
+    public long getCommits() {
+        return commits;
+    }
+
+    // writes what is appended so far and closes the segment
+    public void close() throws InterruptedException {
+        synchronized (appendLock) {
+            if(!open) return;
+            open = false;
+            appendLock.notify();
+        }
+        committer.join();
+        try {
+            segment.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
+
+// Records lock and unlock events of the wrapped provider in the ledger. They are appended without
+// waiting for the fsync, bookings are what has to be durable.
+class JournaledSeatLockProvider implements SeatLockProvider {
+    private final SeatLockProvider delegate;
+    private final BookingLedger ledger;
+
+    JournaledSeatLockProvider(SeatLockProvider delegate, BookingLedger ledger) {
+        this.delegate = delegate;
+        this.ledger = ledger;
+    }
+
+    // a lock the ledger refused to record is handed back so the two never disagree
+    @Override
+    public void lockSeats(Show show, List<Seat> seatList, User user) {
+        delegate.lockSeats(show, seatList, user);
+        try {
+            ledger.recordLock(show, seatList, user, LedgerEventType.LOCKED);
+        } catch (RuntimeException e) {
+            delegate.unlockSeats(show, seatList, user);
+            throw e;
+        }
+    }
+
+    // and an unlock it refused to record is taken back the same way
+    @Override
+    public void unlockSeats(Show show, List<Seat> seatList, User user) {
+        delegate.unlockSeats(show, seatList, user);
+        try {
+            ledger.recordLock(show, seatList, user, LedgerEventType.UNLOCKED);
+        } catch (RuntimeException e) {
+            try {
+                delegate.lockSeats(show, seatList, user);
+            } catch (RuntimeException relock) {
+                e.addSuppressed(relock);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean validateLock(Show show, Seat seat, User user) {
+        return delegate.validateLock(show, seat, user);
+    }
+
+    @Override
+    public List<Seat> getLockedSeats(Show show) {
+        return delegate.getLockedSeats(show);
+    }
+}
@@ -0,0 +1,12 @@
+package org.example;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Where confirmed bookings and cancellations go, so they can be made durable.
+interface BookingRecorder {
+    // completes once the booking is recorded; fails when any of the seats is already booked
+    CompletableFuture<Void> book(Show show, List<Seat> seats, User user);
+    // fails when any of the seats is not booked by the user
+    CompletableFuture<Void> cancel(Show show, List<Seat> seats, User user);
+}
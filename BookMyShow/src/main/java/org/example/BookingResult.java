@@ -0,0 +1,6 @@
+package org.example;
+
+import java.util.List;
+
+record BookingResult(BookingStatus status, String userId, List<Seat> seats) {
+}
@@ -0,0 +1,14 @@
+package org.example;
+
+enum BookingStatus {
+    CONFIRMED,
+    SEATS_UNAVAILABLE,
+    PAYMENT_FAILED,
+    PAYMENT_TIMED_OUT,
+    // paid, but the seat locks ran out before confirmation, the payment is refunded
+    LOCK_EXPIRED,
+    // paid, but the booking recorder failed to record it, the payment is refunded
+    RECORD_FAILED,
+    // too many bookings in flight for the show
+    REJECTED_BUSY
+}
@@ -0,0 +1,123 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Runs tasks at a deadline with tickMillis precision. Scheduling and cancelling are O(1): a timeout goes
+// into a lock free queue and is placed into the bucket of its tick by the worker thread, which visits
+// one bucket per tick and fires the entries whose remaining rounds are used up. Cancelled entries are
+// dropped when their bucket comes around. Tasks run on the worker thread and should be short.
+class HashedTimingWheel {
+    private final long tickMillis;
+    private final int mask;
+    private final List<List<Timeout>> wheel;
+    private final Queue<Timeout> pending;
+    private final long startMillis;
+    private final Thread worker;
+    private volatile boolean running;
+
+    static final class Timeout {
+        private final long deadline;
+        private final Runnable task;
+        private long rounds;
+        private volatile boolean cancelled;
+
+        private Timeout(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    HashedTimingWheel(long tickMillis, int wheelSize) {
+        if(Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two");
+        }
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.wheel = new ArrayList<>();
+        for(int i = 0; i < wheelSize; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.startMillis = System.currentTimeMillis();
+        this.running = true;
+        this.worker = new Thread(this::run, "timing-wheel");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public Timeout schedule(long delayMillis, Runnable task) {
+        if(!running) {
+            throw new IllegalStateException("Timing wheel is stopped");
+        }
+        Timeout timeout = new Timeout(System.currentTimeMillis() + delayMillis, task);
+        pending.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        long tick = 0;
+        while(running) {
+            long tickEnd = startMillis + (tick + 1) * tickMillis;
+            long sleep = tickEnd - System.currentTimeMillis();
+            if(sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            placePending(tick);
+            fire(wheel.get((int) (tick & mask)));
+            tick++;
+        }
+    }
+
+    private void placePending(long tick) {
+        for(Timeout timeout = pending.poll(); timeout != null; timeout = pending.poll()) {
+            if(timeout.cancelled) continue;
+            // a deadline inside the current tick, or already past, fires now
+            long deadlineTick = Math.max(tick, (timeout.deadline - startMillis) / tickMillis);
+            timeout.rounds = (deadlineTick - tick) / wheel.size();
+            wheel.get((int) (deadlineTick & mask)).add(timeout);
+        }
+    }
+
+    private static void fire(List<Timeout> bucket) {
+        int kept = 0;
+        for(int i = 0; i < bucket.size(); i++) {
+            Timeout timeout = bucket.get(i);
+            if(timeout.cancelled) continue;
+            if(timeout.rounds > 0) {
+                timeout.rounds--;
+                bucket.set(kept++, timeout);
+                continue;
+            }
+            try {
+                timeout.task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Timing wheel task failed: " + e.getMessage());
+            }
+        }
+        bucket.subList(kept, bucket.size()).clear();
+    }
+
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+}
@@ -0,0 +1,36 @@
+package org.example;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Bookings only live in the shows' booked seats.
+class InMemoryBookingRecorder implements BookingRecorder {
+
+    // all or nothing: on a conflict the seats booked so far are given back before failing
+    @Override
+    public CompletableFuture<Void> book(Show show, List<Seat> seats, User user) {
+        for(int i = 0; i < seats.size(); i++) {
+            if(!show.book(show.getSeatOrdinal(seats.get(i)), user.getId())) {
+                for(Seat booked: seats.subList(0, i)) {
+                    show.cancel(show.getSeatOrdinal(booked), user.getId());
+                }
+                throw new RuntimeException("Seat already booked...");
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // only the user who booked the seats may cancel them, nothing is cancelled if one of them isn't theirs
+    @Override
+    public CompletableFuture<Void> cancel(Show show, List<Seat> seats, User user) {
+        for(Seat seat: seats) {
+            if(!user.getId().equals(show.getBookedBy(show.getSeatOrdinal(seat)))) {
+                throw new RuntimeException("Seat is not booked by the user...");
+            }
+        }
+        for(Seat seat: seats) {
+            show.cancel(show.getSeatOrdinal(seat), user.getId());
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -0,0 +1,10 @@
+package org.example;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+interface PaymentGateway {
+    // completes with true once the user is charged, false when the payment is declined
+    CompletableFuture<Boolean> charge(User user, Show show, List<Seat> seats);
+    CompletableFuture<Void> refund(User user, Show show, List<Seat> seats);
+}
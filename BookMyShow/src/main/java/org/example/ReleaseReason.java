@@ -0,0 +1,6 @@
+package org.example;
+
+enum ReleaseReason {
+    EXPIRED,
+    UNLOCKED
+}
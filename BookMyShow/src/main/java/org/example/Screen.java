@@ -0,0 +1,15 @@
+package org.example;
+
+import java.util.List;
+
+class Screen {
+    private final String id;
+    private final List<Show> shows;
+    private final List<Seat> seats;
+
+    Screen(String id, List<Show> shows, List<Seat> seats) {
+        this.id = id;
+        this.shows = shows;
+        this.seats = seats;
+    }
+}
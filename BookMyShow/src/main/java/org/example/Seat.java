@@ -0,0 +1,19 @@
+package org.example;
+
+class Seat {
+    private final String id;
+    private final SeatType seatType;
+
+    Seat(String id, SeatType seatType) {
+        this.id = id;
+        this.seatType = seatType;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public SeatType getSeatType() {
+        return seatType;
+    }
+}
@@ -0,0 +1,50 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Fixed size thread safe bitset, one bit per seat ordinal.
+class SeatBitmap {
+    private final int size;
+    private final AtomicLongArray words;
+
+    SeatBitmap(int size) {
+        this.size = size;
+        this.words = new AtomicLongArray((size + 63) >>> 6);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int wordCount() {
+        return words.length();
+    }
+
+    public long word(int index) {
+        return words.get(index);
+    }
+
+    public boolean get(int ordinal) {
+        return (words.get(ordinal >>> 6) & (1L << ordinal)) != 0;
+    }
+
+    // false when the bit was already set
+    public boolean set(int ordinal) {
+        long bit = 1L << ordinal;
+        while(true) {
+            long word = words.get(ordinal >>> 6);
+            if((word & bit) != 0) return false;
+            if(words.compareAndSet(ordinal >>> 6, word, word | bit)) return true;
+        }
+    }
+
+    // false when the bit was already clear
+    public boolean clear(int ordinal) {
+        long bit = 1L << ordinal;
+        while(true) {
+            long word = words.get(ordinal >>> 6);
+            if((word & bit) == 0) return false;
+            if(words.compareAndSet(ordinal >>> 6, word, word & ~bit)) return true;
+        }
+    }
+}
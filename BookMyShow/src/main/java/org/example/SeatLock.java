@@ -0,0 +1,33 @@
+package org.example;
+
+class SeatLock {
+    private final Seat seat;
+    private final Show show;
+    private final long timeOut;
+    private final long lockedTime;
+    private final User lockedBy;
+
+    SeatLock(Seat seat, Show show, long timeOut, long lockedTime, User lockedBy) {
+        this.seat = seat;
+        this.show = show;
+        this.timeOut = timeOut;
+        this.lockedTime = lockedTime;
+        this.lockedBy = lockedBy;
+    }
+
+    public User getLockedBy() {
+        return lockedBy;
+    }
+
+    public Seat getSeat() {
+        return seat;
+    }
+
+    public boolean isLockExpired() {
+        return isLockExpired(System.currentTimeMillis());
+    }
+
+    public boolean isLockExpired(long currentMillis) {
+        return lockedTime + timeOut < currentMillis;
+    }
+}
@@ -0,0 +1,10 @@
+package org.example;
+
+import java.util.List;
+
+interface SeatLockProvider {
+    void lockSeats(Show show, List<Seat> seatList, User user);
+    void unlockSeats(Show show, List<Seat> seatList, User user);
+    boolean validateLock(Show show, Seat seat, User user);
+    List<Seat> getLockedSeats(Show show);
+}
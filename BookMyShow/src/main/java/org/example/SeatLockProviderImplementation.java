@@ -0,0 +1,88 @@
+package org.example;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+class SeatLockProviderImplementation implements SeatLockProvider {
+
+    private final Map<Show, Map<Seat, SeatLock>> locks;
+
+    SeatLockProviderImplementation() {
+        locks = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void lockSeats(final Show show, final List<Seat> seatList, User user) {
+        Map<Seat, SeatLock> seatLocks = locks.computeIfAbsent(show, s -> new ConcurrentHashMap<>());
+        synchronized (seatLocks) {
+            removeExpired(show, seatLocks);
+            for(Seat seat: seatList) {
+                if(show.isBooked(seat)) {
+                    throw new RuntimeException("Seat already booked...");
+                }
+                if(seatLocks.containsKey(seat)) {
+                    throw new RuntimeException("Seat already locked...");
+                }
+            }
+
+            for(Seat seat: seatList) {
+                SeatLock seatLock = new SeatLock(seat, show, 5000, System.currentTimeMillis(), user);
+                seatLocks.put(seat, seatLock);
+                show.setLocked(show.getSeatOrdinal(seat), true);
+            }
+        }
+    }
+
+    @Override
+    public void unlockSeats(Show show, List<Seat> seatList, User user) {
+        Map<Seat, SeatLock> seatLocks = locks.computeIfAbsent(show, s -> new ConcurrentHashMap<>());
+        synchronized (seatLocks) {
+            boolean anyUnauthorizedRequest = false;
+            for(Seat seat: seatList) {
+                SeatLock currentSeatLock = seatLocks.get(seat);
+                if(currentSeatLock != null &&  !currentSeatLock.getLockedBy().equals(user)) {
+                    anyUnauthorizedRequest = true;
+                } else if(seatLocks.remove(seat) != null) {
+                    show.setLocked(show.getSeatOrdinal(seat), false);
+                }
+            }
+
+            if(anyUnauthorizedRequest) {
+                throw new RuntimeException("Unauthorized user tried to release!!!");
+            }
+        }
+    }
+
+    @Override
+    public boolean validateLock(Show show, Seat seat, User user) {
+        Map<Seat, SeatLock> seatLocks = locks.get(show);
+        if(seatLocks == null) return false;
+        synchronized (seatLocks) {
+            SeatLock seatLock = seatLocks.get(seat);
+            return (seatLock.getLockedBy().equals(user));
+        }
+    }
+
+    @Override
+    public List<Seat> getLockedSeats(Show show) {
+        Map<Seat, SeatLock> seatLocks = locks.computeIfAbsent(show, s -> new ConcurrentHashMap<>());
+        synchronized (seatLocks) {
+            removeExpired(show, seatLocks);
+            return seatLocks.keySet().stream().toList();
+        }
+    }
+
+    // locks expire lazily, the show's locked bits are cleared when an expired lock is found
+    private static void removeExpired(Show show, Map<Seat, SeatLock> seatLocks) {
+        Iterator<Map.Entry<Seat, SeatLock>> iterator = seatLocks.entrySet().iterator();
+        while(iterator.hasNext()) {
+            Map.Entry<Seat, SeatLock> entry = iterator.next();
+            if(entry.getValue().isLockExpired()) {
+                iterator.remove();
+                show.setLocked(show.getSeatOrdinal(entry.getKey()), false);
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package org.example;
+
+import java.util.List;
+
+// Seats that became available (freed) or unavailable (taken) from fromVersion to toVersion.
+// A full update lists all available seats in freed, the client drops what it had.
+record SeatMapDelta(long fromVersion, long toVersion, boolean full, List<Seat> freed, List<Seat> taken) {
+}
@@ -0,0 +1,75 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Immutable availability of a show's seats at one version, what browse requests read.
+// Show publishes a new one after every change to its booked or locked seats.
+final class SeatMapSnapshot {
+    private final long version;
+    private final List<Seat> seats;
+    // bit set for every seat that is neither booked nor locked, by seat ordinal
+    private final long[] free;
+
+    SeatMapSnapshot(long version, List<Seat> seats, long[] free) {
+        this.version = version;
+        this.seats = seats;
+        this.free = free;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isAvailable(int ordinal) {
+        return (free[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    public int countAvailableSeats() {
+        int count = 0;
+        for(long word: free) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public List<Seat> getAvailableSeats() {
+        List<Seat> available = new ArrayList<>();
+        for(int word = 0; word < free.length; word++) {
+            addSeats(available, word, free[word]);
+        }
+        return available;
+    }
+
+    // what changed between an older snapshot and this one
+    SeatMapDelta changesSince(SeatMapSnapshot older) {
+        List<Seat> freed = new ArrayList<>();
+        List<Seat> taken = new ArrayList<>();
+        for(int word = 0; word < free.length; word++) {
+            long changed = free[word] ^ older.free[word];
+            if(changed == 0) continue;
+            addSeats(freed, word, changed & free[word]);
+            addSeats(taken, word, changed & older.free[word]);
+        }
+        return new SeatMapDelta(older.version, version, false, freed, taken);
+    }
+
+    // for clients too far behind: every available seat, replacing what they have
+    SeatMapDelta asFullUpdate(long fromVersion) {
+        return new SeatMapDelta(fromVersion, version, true, getAvailableSeats(), List.of());
+    }
+
+    boolean sameAvailability(long[] other) {
+        for(int word = 0; word < free.length; word++) {
+            if(free[word] != other[word]) return false;
+        }
+        return true;
+    }
+
+    private void addSeats(List<Seat> out, int word, long bits) {
+        while(bits != 0) {
+            out.add(seats.get((word << 6) + Long.numberOfTrailingZeros(bits)));
+            bits &= bits - 1;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package org.example;
+
+import java.util.List;
+
+// Notified when locked seats become free again, e.g. to tell waiting users. Booked seats are never reported.
+interface SeatReleaseListener {
+    void onSeatsReleased(Show show, List<Seat> seats, User previousHolder, ReleaseReason reason);
+}
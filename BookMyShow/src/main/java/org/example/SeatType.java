@@ -0,0 +1,7 @@
+package org.example;
+
+enum SeatType {
+    GOLD,
+    SILVER,
+    NORMAL
+}
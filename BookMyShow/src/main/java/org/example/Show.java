@@ -0,0 +1,270 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+class Show {
+    private final String moveName;
+    private final long startTime;
+    private final long endTime;
+    private final List<Seat> seats;
+    private final Theatre theatre;
+    // position of each seat in seats, per show state is kept in arrays indexed by it
+    private final Map<Seat, Integer> seatOrdinals;
+    private final SeatBitmap bookedSeats;
+    // id of the user each booked seat belongs to, null for seats booked through bookSeat
+    private final AtomicReferenceArray<String> bookedBy;
+    // set while a lock provider holds a lock on the seat
+    private final SeatBitmap lockedSeats;
+    // seats of each SeatType, indexed by SeatType.ordinal(); never changes after construction
+    private final long[][] seatTypeMasks;
+    // latest published availability, browse requests read it without touching the bitmaps
+    private final AtomicReference<SeatMapSnapshot> seatMap;
+    // the last SEAT_MAP_HISTORY snapshots by version, to answer "changes since" requests
+    private final AtomicReferenceArray<SeatMapSnapshot> seatMapHistory;
+    private static final int SEAT_MAP_HISTORY = 256;
+
+    Show(String moveName, long startTime, long endTime, List<Seat> seats, Theatre theatre) {
+        this.moveName = moveName;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.seats = seats;
+        this.theatre = theatre;
+        this.seatOrdinals = new HashMap<>();
+        this.bookedSeats = new SeatBitmap(seats.size());
+        this.bookedBy = new AtomicReferenceArray<>(seats.size());
+        this.lockedSeats = new SeatBitmap(seats.size());
+        this.seatTypeMasks = new long[SeatType.values().length][bookedSeats.wordCount()];
+        for(int i = 0; i < seats.size(); i++) {
+            seatOrdinals.put(seats.get(i), i);
+            seatTypeMasks[seats.get(i).getSeatType().ordinal()][i >>> 6] |= 1L << i;
+        }
+        this.seatMap = new AtomicReference<>();
+        this.seatMapHistory = new AtomicReferenceArray<>(SEAT_MAP_HISTORY);
+        publishSeatMap();
+    }
+
+    public int getSeatOrdinal(Seat seat) {
+        Integer ordinal = seatOrdinals.get(seat);
+        if(ordinal == null) {
+            throw new IllegalArgumentException("Seat is not part of this show");
+        }
+        return ordinal;
+    }
+
+    public String getMoveName() {
+        return moveName;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public Theatre getTheatre() {
+        return theatre;
+    }
+
+    public List<Seat> getSeats() {
+        return seats;
+    }
+
+    public void bookSeat(Seat seat) {
+        if(!setBooked(getSeatOrdinal(seat), true)) {
+            throw new RuntimeException("Seat already booked...");
+        }
+    }
+
+    // false when the seat already was in that state
+    private boolean setBooked(int ordinal, boolean booked) {
+        boolean changed = booked ? bookedSeats.set(ordinal) : bookedSeats.clear(ordinal);
+        if(changed) {
+            publishSeatMap();
+        }
+        return changed;
+    }
+
+    // false when the seat is already booked; booking recorders book and cancel seats through these two
+    boolean book(int ordinal, String userId) {
+        if(!setBooked(ordinal, true)) return false;
+        bookedBy.set(ordinal, userId);
+        return true;
+    }
+
+    // false unless the seat is booked by userId
+    boolean cancel(int ordinal, String userId) {
+        String owner = bookedBy.get(ordinal);
+        // the CAS compares references, so it is done against the stored string
+        if(userId == null || !userId.equals(owner) || !bookedBy.compareAndSet(ordinal, owner, null)) return false;
+        setBooked(ordinal, false);
+        return true;
+    }
+
+    String getBookedBy(int ordinal) {
+        return bookedBy.get(ordinal);
+    }
+
+    // books every seat set in words at once with its owner from owners, for loading a ledger snapshot
+    void restoreBookings(long[] words, String[] owners) {
+        if(words.length != bookedSeats.wordCount() || owners.length != seats.size()) {
+            throw new IllegalArgumentException("Booked seats are for a different seat layout");
+        }
+        for(int word = 0; word < words.length; word++) {
+            for(long bits = words[word]; bits != 0; bits &= bits - 1) {
+                int ordinal = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bookedSeats.set(ordinal);
+                bookedBy.set(ordinal, owners[ordinal]);
+            }
+        }
+        publishSeatMap();
+    }
+
+    // copy of the owners by seat ordinal
+    String[] getBookedBy() {
+        String[] owners = new String[seats.size()];
+        for(int ordinal = 0; ordinal < owners.length; ordinal++) {
+            owners[ordinal] = bookedBy.get(ordinal);
+        }
+        return owners;
+    }
+
+    // copy of the booked bits, 64 seat ordinals per word
+    long[] getBookedWords() {
+        long[] words = new long[bookedSeats.wordCount()];
+        for(int word = 0; word < words.length; word++) {
+            words[word] = bookedSeats.word(word);
+        }
+        return words;
+    }
+
+    public boolean isBooked(Seat seat) {
+        return bookedSeats.get(getSeatOrdinal(seat));
+    }
+
+    public List<Seat> getBookedSeats() {
+        List<Seat> booked = new ArrayList<>();
+        for(int word = 0; word < bookedSeats.wordCount(); word++) {
+            addSeats(booked, word, bookedSeats.word(word));
+        }
+        return booked;
+    }
+
+    // lock providers keep this in step with their lock state
+    void setLocked(int ordinal, boolean locked) {
+        boolean changed = locked ? lockedSeats.set(ordinal) : lockedSeats.clear(ordinal);
+        if(changed) {
+            publishSeatMap();
+        }
+    }
+
+    public SeatMapSnapshot getSeatMap() {
+        return seatMap.get();
+    }
+
+    // Seats freed and taken since the given version; a full update when that version is no longer kept.
+    public SeatMapDelta getSeatMapChanges(long sinceVersion) {
+        SeatMapSnapshot current = seatMap.get();
+        if(sinceVersion == current.getVersion()) {
+            return new SeatMapDelta(sinceVersion, sinceVersion, false, List.of(), List.of());
+        }
+        SeatMapSnapshot since = sinceVersion < 0 ? null : seatMapHistory.get((int) (sinceVersion % SEAT_MAP_HISTORY));
+        if(since == null || since.getVersion() != sinceVersion || sinceVersion > current.getVersion()) {
+            return current.asFullUpdate(sinceVersion);
+        }
+        return current.changesSince(since);
+    }
+
+    // Called after every change to the bitmaps. The new snapshot is built from bitmaps read after the
+    // current one was seen, so whichever writer wins the CAS publishes a state at least as new as the last;
+    // a changed bit is in the published map once its writer returns. A change that leaves availability
+    // as it was (booking a seat that was locked) keeps the version.
+    private void publishSeatMap() {
+        while(true) {
+            SeatMapSnapshot current = seatMap.get();
+            long[] free = new long[bookedSeats.wordCount()];
+            for(int word = 0; word < free.length; word++) {
+                free[word] = freeWord(word);
+            }
+            if(current != null && current.sameAvailability(free)) return;
+            long version = current == null ? 0 : current.getVersion() + 1;
+            SeatMapSnapshot next = new SeatMapSnapshot(version, seats, free);
+            if(seatMap.compareAndSet(current, next)) {
+                seatMapHistory.set((int) (version % SEAT_MAP_HISTORY), next);
+                return;
+            }
+        }
+    }
+
+    // bits of seats that are neither booked nor locked, for the given word of 64 ordinals
+    private long freeWord(int word) {
+        long free = ~(bookedSeats.word(word) | lockedSeats.word(word));
+        int tail = seats.size() - (word << 6);
+        return tail >= 64 ? free : free & ((1L << tail) - 1);
+    }
+
+    public List<Seat> getAvailableSeats() {
+        List<Seat> available = new ArrayList<>();
+        for(int word = 0; word < bookedSeats.wordCount(); word++) {
+            addSeats(available, word, freeWord(word));
+        }
+        return available;
+    }
+
+    public int countAvailableSeats() {
+        int count = 0;
+        for(int word = 0; word < bookedSeats.wordCount(); word++) {
+            count += Long.bitCount(freeWord(word));
+        }
+        return count;
+    }
+
+    private void addSeats(List<Seat> out, int word, long bits) {
+        while(bits != 0) {
+            out.add(seats.get((word << 6) + Long.numberOfTrailingZeros(bits)));
+            bits &= bits - 1;
+        }
+    }
+
+    // First run of count free seats of seatType at consecutive ordinals, empty when there is none.
+    // Seats are listed row by row, so a run follows the seat list; whole free or taken words are skipped at once.
+    public List<Seat> findAdjacentSeats(SeatType seatType, int count) {
+        long[] typeMask = seatTypeMasks[seatType.ordinal()];
+        int run = 0;
+        int runStart = 0;
+        for(int word = 0; word < typeMask.length; word++) {
+            long bits = freeWord(word) & typeMask[word];
+            if(bits == -1L) {
+                if(run == 0) runStart = word << 6;
+                run += 64;
+            } else if(bits == 0) {
+                run = 0;
+                continue;
+            } else {
+                int position = 0;
+                while(position < 64 && run < count) {
+                    long rest = bits >>> position;
+                    if((rest & 1) == 0) {
+                        run = 0;
+                        position += rest == 0 ? 64 - position : Long.numberOfTrailingZeros(rest);
+                    } else {
+                        int ones = Math.min(Long.numberOfTrailingZeros(~rest), 64 - position);
+                        if(run == 0) runStart = (word << 6) + position;
+                        run += ones;
+                        position += ones;
+                    }
+                }
+            }
+            if(run >= count) {
+                return new ArrayList<>(seats.subList(runStart, runStart + count));
+            }
+        }
+        return List.of();
+    }
+}
@@ -0,0 +1,46 @@
+package org.example;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Stands in for a remote gateway: answers after latencyMillis on the timing wheel, no thread waits meanwhile.
+// A slowRate share of charges takes three times longer, a failureRate share is declined.
+class SimulatedPaymentGateway implements PaymentGateway {
+    private final HashedTimingWheel wheel;
+    private final long latencyMillis;
+    private final double failureRate;
+    private final double slowRate;
+    private final AtomicInteger refunds;
+
+    SimulatedPaymentGateway(HashedTimingWheel wheel, long latencyMillis, double failureRate, double slowRate) {
+        this.wheel = wheel;
+        this.latencyMillis = latencyMillis;
+        this.failureRate = failureRate;
+        this.slowRate = slowRate;
+        this.refunds = new AtomicInteger();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> charge(User user, Show show, List<Seat> seats) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        double roll = ThreadLocalRandom.current().nextDouble();
+        long latency = roll < slowRate ? latencyMillis * 3 : latencyMillis;
+        boolean approved = roll >= slowRate + failureRate || roll < slowRate;
+        wheel.schedule(latency, () -> result.complete(approved));
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Void> refund(User user, Show show, List<Seat> seats) {
+        refunds.incrementAndGet();
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        wheel.schedule(latencyMillis, () -> result.complete(null));
+        return result;
+    }
+
+    public int getRefunds() {
+        return refunds.get();
+    }
+}
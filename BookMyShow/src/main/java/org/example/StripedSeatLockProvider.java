@@ -0,0 +1,173 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Lock state per seat instead of one monitor per show: every show gets an array of SeatLock slots indexed by
+// seat ordinal and each slot is claimed with a CAS, so users locking different seats never wait on each other.
+// A multi seat request claims its seats in ascending ordinal order and releases what it got on the first
+// conflict. Nothing blocks, and the fixed order means of two overlapping requests the one reaching the
+// lowest contested seat first gets all of it, instead of both grabbing half and failing.
+// Every successful lockSeats schedules its expiry on a timing wheel, which frees the seats that are still held
+// under that lock at the deadline and tells the SeatReleaseListeners, so availability doesn't wait for the next
+// locking attempt. Listeners run on the wheel's thread for expiries and on the caller's for unlocks.
+class StripedSeatLockProvider implements SeatLockProvider {
+    private final long lockTimeoutMillis;
+    private final Map<Show, AtomicReferenceArray<SeatLock>> locks;
+    private final HashedTimingWheel expiryWheel;
+    private final List<SeatReleaseListener> releaseListeners;
+
+    StripedSeatLockProvider() {
+        this(5000);
+    }
+
+    StripedSeatLockProvider(long lockTimeoutMillis) {
+        this(lockTimeoutMillis, new HashedTimingWheel(10, 512));
+    }
+
+    StripedSeatLockProvider(long lockTimeoutMillis, HashedTimingWheel expiryWheel) {
+        this.lockTimeoutMillis = lockTimeoutMillis;
+        this.locks = new ConcurrentHashMap<>();
+        this.expiryWheel = expiryWheel;
+        this.releaseListeners = new CopyOnWriteArrayList<>();
+    }
+
+    public void addReleaseListener(SeatReleaseListener listener) {
+        releaseListeners.add(listener);
+    }
+
+    private void publish(Show show, List<Seat> seats, User previousHolder, ReleaseReason reason) {
+        if(seats.isEmpty()) return;
+        for(SeatReleaseListener listener: releaseListeners) {
+            listener.onSeatsReleased(show, seats, previousHolder, reason);
+        }
+    }
+
+    private AtomicReferenceArray<SeatLock> slots(Show show) {
+        return locks.computeIfAbsent(show, s -> new AtomicReferenceArray<>(s.getSeats().size()));
+    }
+
+    private static int[] sortedOrdinals(Show show, List<Seat> seatList) {
+        int[] ordinals = new int[seatList.size()];
+        for(int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = show.getSeatOrdinal(seatList.get(i));
+        }
+        Arrays.sort(ordinals);
+        return Arrays.stream(ordinals).distinct().toArray();
+    }
+
+    @Override
+    public void lockSeats(Show show, List<Seat> seatList, User user) {
+        AtomicReferenceArray<SeatLock> slots = slots(show);
+        int[] ordinals = sortedOrdinals(show, seatList);
+        long now = System.currentTimeMillis();
+        SeatLock[] acquired = new SeatLock[ordinals.length];
+        for(int i = 0; i < ordinals.length; i++) {
+            Seat seat = show.getSeats().get(ordinals[i]);
+            if(show.isBooked(seat)) {
+                rollback(show, slots, ordinals, acquired, i);
+                throw new RuntimeException("Seat already booked...");
+            }
+            SeatLock mine = new SeatLock(seat, show, lockTimeoutMillis, now, user);
+            while(true) {
+                SeatLock current = slots.get(ordinals[i]);
+                if(current != null && !current.isLockExpired(now)) {
+                    rollback(show, slots, ordinals, acquired, i);
+                    throw new RuntimeException("Seat already locked...");
+                }
+                if(slots.compareAndSet(ordinals[i], current, mine)) {
+                    acquired[i] = mine;
+                    syncLockedBit(show, slots, ordinals[i]);
+                    break;
+                }
+            }
+        }
+        // isLockExpired is true strictly after lockedTime + timeOut
+        expiryWheel.schedule(lockTimeoutMillis + 1, () -> expire(show, slots, ordinals, acquired, user));
+    }
+
+    // releases the seats still held under this request's locks, unlocked or taken over ones are skipped by the CAS
+    private void expire(Show show, AtomicReferenceArray<SeatLock> slots, int[] ordinals, SeatLock[] acquired, User user) {
+        List<Seat> released = new ArrayList<>();
+        for(int i = 0; i < ordinals.length; i++) {
+            if(slots.compareAndSet(ordinals[i], acquired[i], null)) {
+                syncLockedBit(show, slots, ordinals[i]);
+                if(!show.isBooked(acquired[i].getSeat())) {
+                    released.add(acquired[i].getSeat());
+                }
+            }
+        }
+        publish(show, released, user, ReleaseReason.EXPIRED);
+    }
+
+    private static void rollback(Show show, AtomicReferenceArray<SeatLock> slots, int[] ordinals, SeatLock[] acquired, int count) {
+        for(int i = 0; i < count; i++) {
+            // only clears the slot if nobody took it over in between
+            if(slots.compareAndSet(ordinals[i], acquired[i], null)) {
+                syncLockedBit(show, slots, ordinals[i]);
+            }
+        }
+    }
+
+    // The slot and the show's locked bit can't change together, so whoever changed the slot copies it into
+    // the bit and checks the slot again: a racing change that got overwritten is redone by the loop.
+    private static void syncLockedBit(Show show, AtomicReferenceArray<SeatLock> slots, int ordinal) {
+        while(true) {
+            boolean locked = slots.get(ordinal) != null;
+            show.setLocked(ordinal, locked);
+            if((slots.get(ordinal) != null) == locked) return;
+        }
+    }
+
+    @Override
+    public void unlockSeats(Show show, List<Seat> seatList, User user) {
+        AtomicReferenceArray<SeatLock> slots = slots(show);
+        boolean anyUnauthorizedRequest = false;
+        List<Seat> released = new ArrayList<>();
+        for(int ordinal: sortedOrdinals(show, seatList)) {
+            SeatLock current = slots.get(ordinal);
+            if(current == null) continue;
+            if(!current.getLockedBy().equals(user)) {
+                anyUnauthorizedRequest = true;
+            } else if(slots.compareAndSet(ordinal, current, null)) {
+                syncLockedBit(show, slots, ordinal);
+                if(!show.isBooked(current.getSeat())) {
+                    released.add(current.getSeat());
+                }
+            }
+        }
+        publish(show, released, user, ReleaseReason.UNLOCKED);
+
+        if(anyUnauthorizedRequest) {
+            throw new RuntimeException("Unauthorized user tried to release!!!");
+        }
+    }
+
+    @Override
+    public boolean validateLock(Show show, Seat seat, User user) {
+        AtomicReferenceArray<SeatLock> slots = locks.get(show);
+        if(slots == null) return false;
+        SeatLock seatLock = slots.get(show.getSeatOrdinal(seat));
+        return seatLock != null && !seatLock.isLockExpired() && seatLock.getLockedBy().equals(user);
+    }
+
+    @Override
+    public List<Seat> getLockedSeats(Show show) {
+        AtomicReferenceArray<SeatLock> slots = locks.get(show);
+        if(slots == null) return List.of();
+        long now = System.currentTimeMillis();
+        List<Seat> lockedSeats = new ArrayList<>();
+        for(int i = 0; i < slots.length(); i++) {
+            SeatLock seatLock = slots.get(i);
+            if(seatLock != null && !seatLock.isLockExpired(now)) {
+                lockedSeats.add(seatLock.getSeat());
+            }
+        }
+        return lockedSeats;
+    }
+}
@@ -0,0 +1,35 @@
+package org.example;
+
+import java.util.List;
+
+class Theatre {
+    private final String id;
+    private final String name;
+    private final List<Screen> screens;
+    private final List<Show> shows;
+    private final String location;
+
+    Theatre(String id, String name, List<Screen> screens, List<Show> shows, String location) {
+        this.id = id;
+        this.name = name;
+        this.screens = screens;
+        this.shows = shows;
+        this.location = location;
+    }
+
+    public List<Show> getShows() {
+        return shows;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+}
@@ -0,0 +1,105 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Theatres by id and location, shows by movie and by start time. Every index is a concurrent map, so lookups
+// never block and theatres can be added or removed while they run; a theatre's shows are indexed when the
+// theatre is added. Shows without a theatre are not reachable from here and are not indexed.
+class TheatreService {
+    private final Map<String, Theatre> theatresById;
+    private final Map<String, Set<Theatre>> theatresByLocation;
+    private final Map<String, Set<Show>> showsByMovie;
+    // start time -> shows starting then, sorted for range queries
+    private final ConcurrentNavigableMap<Long, Set<Show>> showsByStartTime;
+
+    TheatreService(List<Theatre> theatres) {
+        this.theatresById = new ConcurrentHashMap<>();
+        this.theatresByLocation = new ConcurrentHashMap<>();
+        this.showsByMovie = new ConcurrentHashMap<>();
+        this.showsByStartTime = new ConcurrentSkipListMap<>();
+        for(Theatre theatre: theatres) {
+            addTheatre(theatre);
+        }
+    }
+
+    public void addTheatre (Theatre theatre) {
+        if(theatresById.putIfAbsent(theatre.getId(), theatre) != null) {
+            throw new RuntimeException("Theatre already exists");
+        }
+        if(theatre.getLocation() != null) {
+            theatresByLocation.computeIfAbsent(theatre.getLocation(), l -> ConcurrentHashMap.newKeySet()).add(theatre);
+        }
+        for(Show show: theatre.getShows()) {
+            if(show.getMoveName() != null) {
+                showsByMovie.computeIfAbsent(show.getMoveName(), m -> ConcurrentHashMap.newKeySet()).add(show);
+            }
+            showsByStartTime.computeIfAbsent(show.getStartTime(), t -> ConcurrentHashMap.newKeySet()).add(show);
+        }
+    }
+
+    public void removeTheatre(String theatreId) {
+        Theatre theatre = theatresById.remove(theatreId);
+        if(theatre == null) return;
+        if(theatre.getLocation() != null) {
+            remove(theatresByLocation, theatre.getLocation(), theatre);
+        }
+        for(Show show: theatre.getShows()) {
+            if(show.getMoveName() != null) {
+                remove(showsByMovie, show.getMoveName(), show);
+            }
+            remove(showsByStartTime, show.getStartTime(), show);
+        }
+    }
+
+    // drops the key together with its last value, without losing a value added concurrently
+    private static <K, V> void remove(Map<K, Set<V>> index, K key, V value) {
+        index.computeIfPresent(key, (k, values) -> {
+            values.remove(value);
+            return values.isEmpty() ? null : values;
+        });
+    }
+
+    public Optional<Theatre> getTheatreById(String theatreId) {
+        return Optional.ofNullable(theatresById.get(theatreId));
+    }
+
+    public List<Show> allShowsInTheatre(String theatreId) {
+        Theatre theatre = theatresById.get(theatreId);
+
+        if(theatre == null) {
+            throw  new RuntimeException("No theatre");
+        }
+
+        return theatre.getShows();
+    }
+
+    public List<Theatre> getTheatresInLocation(String location) {
+        Set<Theatre> theatres = theatresByLocation.get(location);
+        return theatres == null ? List.of() : new ArrayList<>(theatres);
+    }
+
+    public List<Show> getShowsOfMovie(String movieName) {
+        Set<Show> shows = showsByMovie.get(movieName);
+        return shows == null ? List.of() : new ArrayList<>(shows);
+    }
+
+    // shows starting in [from, to), ordered by start time
+    public List<Show> getShowsStartingBetween(long from, long to) {
+        List<Show> shows = new ArrayList<>();
+        for(Set<Show> startingTogether: showsByStartTime.subMap(from, true, to, false).values()) {
+            shows.addAll(startingTogether);
+        }
+        return shows;
+    }
+
+    public List<Theatre> getAllTheatre() {
+        return new ArrayList<>(theatresById.values());
+    }
+}
@@ -0,0 +1,19 @@
+package org.example;
+
+class User {
+    private final String id;
+    private final String userName;
+
+    User(String id, String userName) {
+        this.id = id;
+        this.userName = userName;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+}
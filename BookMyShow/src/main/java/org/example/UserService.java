@@ -0,0 +1,27 @@
+package org.example;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+class UserService {
+    private final Map<String, User> usersById;
+
+    UserService(List<User> users) {
+        this.usersById = new ConcurrentHashMap<>();
+        for(User user: users) {
+            addUser(user);
+        }
+    }
+
+    // like the list scan before it, the first user added under an id wins
+    public void addUser(User user) {
+        this.usersById.putIfAbsent(user.getId(), user);
+    }
+
+    public Optional<User> getUserById(String userId) {
+        return Optional.ofNullable(usersById.get(userId));
+    }
+
+}
@@ -0,0 +1,152 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Virtual waiting room per show, in front of a lock provider that publishes seat releases.
+// Users join a FIFO line instead of retrying lockSeats, and leave it in two ways:
+// - admitted: admitsPerSecond users per show are let through, they have admissionWindowMillis to lock seats
+// - offered: seats released by expired or unlocked locks are locked for the user at the head of the line
+//   whose seat count they cover, and handed over with the admission; the seats are paid for with
+//   AsyncBookingService.checkout
+// Lines are only consumed on the timing wheel's thread, so admissions and offers never race each other.
+// Cancel the returned future to leave the line.
+class WaitingRoom implements SeatReleaseListener {
+    private static final long ADMIT_TICK_MILLIS = 50;
+
+    private final SeatLockProvider seatLockProvider;
+    private final HashedTimingWheel wheel;
+    private final int admitsPerSecond;
+    private final long admissionWindowMillis;
+    private final Map<Show, Line> lines;
+    private volatile boolean running;
+
+    private record Waiting(User user, int seatCount, CompletableFuture<Admission> admission) {
+    }
+
+    private static final class Line {
+        private final Queue<Waiting> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final Map<User, Long> admitted = new ConcurrentHashMap<>();
+        // token bucket, only touched on the wheel thread
+        private double tokens;
+    }
+
+    WaitingRoom(SeatLockProvider seatLockProvider, HashedTimingWheel wheel, int admitsPerSecond, long admissionWindowMillis) {
+        this.seatLockProvider = seatLockProvider;
+        this.wheel = wheel;
+        this.admitsPerSecond = admitsPerSecond;
+        this.admissionWindowMillis = admissionWindowMillis;
+        this.lines = new ConcurrentHashMap<>();
+        this.running = true;
+        wheel.schedule(ADMIT_TICK_MILLIS, this::admit);
+    }
+
+    public CompletableFuture<Admission> join(Show show, User user, int seatCount) {
+        Line line = lines.computeIfAbsent(show, s -> new Line());
+        CompletableFuture<Admission> admission = new CompletableFuture<>();
+        line.waiting.incrementAndGet();
+        line.queue.add(new Waiting(user, seatCount, admission));
+        return admission;
+    }
+
+    // the admission is used up by a successful lock, a failed one can be retried within the window
+    public void lockSeats(Show show, List<Seat> seats, User user) {
+        Line line = lines.get(show);
+        Long admittedUntil = line == null ? null : line.admitted.get(user);
+        if(admittedUntil == null || admittedUntil < System.currentTimeMillis()) {
+            throw new RuntimeException("Not admitted yet...");
+        }
+        seatLockProvider.lockSeats(show, seats, user);
+        line.admitted.remove(user);
+    }
+
+    public int getWaiting(Show show) {
+        Line line = lines.get(show);
+        return line == null ? 0 : line.waiting.get();
+    }
+
+    @Override
+    public void onSeatsReleased(Show show, List<Seat> seats, User previousHolder, ReleaseReason reason) {
+        Line line = lines.get(show);
+        if(line == null || line.waiting.get() == 0 || !running) return;
+        List<Seat> released = List.copyOf(seats);
+        wheel.schedule(0, () -> offer(show, line, released));
+    }
+
+    private void offer(Show show, Line line, List<Seat> released) {
+        List<Seat> left = new ArrayList<>(released);
+        while(!left.isEmpty()) {
+            Waiting head = head(line);
+            // strictly first come first served, seats too few for the head are left to admitted users
+            if(head == null || head.seatCount() > left.size()) return;
+            List<Seat> offered = new ArrayList<>(left.subList(0, head.seatCount()));
+            try {
+                seatLockProvider.lockSeats(show, offered, head.user());
+            } catch (RuntimeException e) {
+                // taken by an admitted user in the meantime
+                return;
+            }
+            line.queue.poll();
+            line.waiting.decrementAndGet();
+            long admittedUntil = System.currentTimeMillis() + admissionWindowMillis;
+            line.admitted.put(head.user(), admittedUntil);
+            if(!head.admission().complete(new Admission(show, head.user(), offered, admittedUntil))) {
+                // left the line just now
+                line.admitted.remove(head.user());
+                seatLockProvider.unlockSeats(show, offered, head.user());
+                continue;
+            }
+            left.subList(0, head.seatCount()).clear();
+        }
+    }
+
+    // first user still waiting, users who left are dropped on the way
+    private static Waiting head(Line line) {
+        for(Waiting head = line.queue.peek(); head != null; head = line.queue.peek()) {
+            if(!head.admission().isDone()) return head;
+            line.queue.poll();
+            line.waiting.decrementAndGet();
+        }
+        return null;
+    }
+
+    private void admit() {
+        if(!running) return;
+        long now = System.currentTimeMillis();
+        for(Map.Entry<Show, Line> entry: lines.entrySet()) {
+            Line line = entry.getValue();
+            line.admitted.values().removeIf(admittedUntil -> admittedUntil < now);
+            // at most one second worth of admissions piles up while nobody waits
+            line.tokens = Math.min(admitsPerSecond, line.tokens + admitsPerSecond * ADMIT_TICK_MILLIS / 1000.0);
+            while(line.tokens >= 1) {
+                Waiting head = head(line);
+                if(head == null) break;
+                line.queue.poll();
+                line.waiting.decrementAndGet();
+                line.admitted.put(head.user(), now + admissionWindowMillis);
+                if(head.admission().complete(new Admission(entry.getKey(), head.user(), List.of(), now + admissionWindowMillis))) {
+                    line.tokens--;
+                } else {
+                    line.admitted.remove(head.user());
+                }
+            }
+        }
+        wheel.schedule(ADMIT_TICK_MILLIS, this::admit);
+    }
+
+    public void stop() {
+        running = false;
+        for(Line line: lines.values()) {
+            for(Waiting waiting: line.queue) {
+                waiting.admission().completeExceptionally(new RuntimeException("Waiting room closed"));
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Disruptor style writer: producers claim a sequence with a CAS, fill the preallocated slot and publish it;
+// one consumer thread walks the published slots in order and hands them to the delegate in batches,
+// flushing once per batch. Application threads never touch the delegate's stream.
+class AsyncLogWriter implements LogWriter {
+    private static final long UNPUBLISHED = -1;
+    // set in claimed by shutdown(), no sequence can be claimed after it
+    private static final long CLOSED = Long.MIN_VALUE;
+    private static final long DROP = -1;
+    private static final long WRITE_THROUGH = -2;
+    private static final int MAX_RETAINED_CAPACITY = 4096;
+
+    private final LogWriter delegate;
+    private final FullBufferPolicy policy;
+    private final LogLevel dropThreshold;
+    private final int maxBatch;
+    private final int mask;
+    private final LogSlot[] slots;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed;
+    private final AtomicLong consumed;
+    private final LongAdder dropped;
+    private final Thread consumer;
+    private volatile boolean consumerParked;
+    private volatile boolean running;
+
+    // producers copy into the slot's own builders, so callers may pass reused buffers
+    private static final class LogSlot {
+        LogLevel logLevel;
+        final StringBuilder time = new StringBuilder(32);
+        final StringBuilder message = new StringBuilder(128);
+        // set for structured events, which travel as a copy in event
+        boolean structured;
+        final LogEvent event = new LogEvent();
+    }
+
+    AsyncLogWriter(LogWriter delegate, int capacity, FullBufferPolicy policy) {
+        this(delegate, capacity, policy, LogLevel.ERROR, 256);
+    }
+
+    AsyncLogWriter(LogWriter delegate, int capacity, FullBufferPolicy policy, LogLevel dropThreshold, int maxBatch) {
+        if(Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        this.delegate = delegate;
+        this.policy = policy;
+        this.dropThreshold = dropThreshold;
+        this.maxBatch = maxBatch;
+        this.mask = capacity - 1;
+        this.slots = new LogSlot[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for(int i = 0; i < capacity; i++) {
+            slots[i] = new LogSlot();
+            published.set(i, UNPUBLISHED);
+        }
+        this.claimed = new AtomicLong();
+        this.consumed = new AtomicLong();
+        this.dropped = new LongAdder();
+        this.running = true;
+        this.consumer = new Thread(this::consume, "async-log-writer");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    @Override
+    public void write(LogLevel logLevel, String time, String message) {
+        write(logLevel, (CharSequence) time, (CharSequence) message);
+    }
+
+    @Override
+    public void write(LogLevel logLevel, CharSequence time, CharSequence message) {
+        long sequence = running ? claim(logLevel) : WRITE_THROUGH;
+        if(sequence == WRITE_THROUGH) {
+            // nothing consumes the ring any more, write straight through
+            awaitConsumer();
+            synchronized (delegate) {
+                delegate.write(logLevel, time, message);
+                delegate.flush();
+            }
+            return;
+        }
+        if(sequence == DROP) {
+            dropped.increment();
+            return;
+        }
+        LogSlot slot = slots[(int) sequence & mask];
+        slot.structured = false;
+        slot.logLevel = logLevel;
+        slot.time.setLength(0);
+        slot.time.append(time);
+        slot.message.setLength(0);
+        slot.message.append(message);
+        published.set((int) sequence & mask, sequence);
+        if(consumerParked) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    @Override
+    public void write(LogEvent event) {
+        long sequence = running ? claim(event.logLevel()) : WRITE_THROUGH;
+        if(sequence == WRITE_THROUGH) {
+            awaitConsumer();
+            synchronized (delegate) {
+                delegate.write(event);
+                delegate.flush();
+            }
+            return;
+        }
+        if(sequence == DROP) {
+            dropped.increment();
+            return;
+        }
+        LogSlot slot = slots[(int) sequence & mask];
+        slot.structured = true;
+        slot.event.copyFrom(event);
+        published.set((int) sequence & mask, sequence);
+        if(consumerParked) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    // A producer that saw running just before shutdown() can get here after the consumer's final drain
+    // started, the CLOSED bit turns it away to write through instead of into a ring nobody reads.
+    private long claim(LogLevel logLevel) {
+        boolean mayDrop = policy == FullBufferPolicy.DROP
+                || (policy == FullBufferPolicy.DROP_BELOW_LEVEL && logLevel.getPriority() < dropThreshold.getPriority());
+        while(true) {
+            long sequence = claimed.get();
+            if((sequence & CLOSED) != 0) return WRITE_THROUGH;
+            if(sequence - consumed.get() > mask) {
+                if(mayDrop) return DROP;
+                LockSupport.parkNanos(1_000);
+                continue;
+            }
+            if(claimed.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    private void consume() {
+        long next = 0;
+        while(true) {
+            int batch = 0;
+            while(batch < maxBatch && published.get((int) next & mask) == next) {
+                LogSlot slot = slots[(int) next & mask];
+                if(slot.structured) {
+                    delegate.write(slot.event);
+                } else {
+                    delegate.write(slot.logLevel, slot.time, slot.message);
+                }
+                if(slot.message.capacity() > MAX_RETAINED_CAPACITY) {
+                    slot.message.setLength(0);
+                    slot.message.trimToSize();
+                }
+                next++;
+                batch++;
+            }
+            if(batch > 0) {
+                delegate.flush();
+                consumed.set(next);
+                continue;
+            }
+            // after CLOSED nothing more is claimed, everything claimed before gets published and drained
+            if(claimed.get() == (next | CLOSED)) {
+                return;
+            }
+            consumerParked = true;
+            if(published.get((int) next & mask) != next && running) {
+                LockSupport.parkNanos(1_000_000);
+            }
+            consumerParked = false;
+        }
+    }
+
+    // Lines written through wait for the final drain, so they come after everything in the ring
+    // and the consumer is no longer using the delegate.
+    private void awaitConsumer() {
+        boolean interrupted = false;
+        while(consumer.isAlive() && Thread.currentThread() != consumer) {
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    // Blocks until everything written so far reached the delegate.
+    @Override
+    public void flush() {
+        long target = claimed.get() & ~CLOSED;
+        while(consumed.get() < target && consumer.isAlive()) {
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(10_000);
+        }
+    }
+
+    public void shutdown() throws InterruptedException {
+        running = false;
+        long sequence;
+        do {
+            sequence = claimed.get();
+        } while((sequence & CLOSED) == 0 && !claimed.compareAndSet(sequence, sequence | CLOSED));
+        LockSupport.unpark(consumer);
+        consumer.join();
+    }
+}
@@ -0,0 +1,76 @@
+package org.example;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Length prefixed binary records, all integers big endian:
+//   int recordLength, long epochMillis, byte level ordinal, string message, short fieldCount,
+//   per field: string key, byte FieldType ordinal, then an 8 byte long/double, 1 byte boolean or a string,
+// where a string is an int byte length followed by UTF-8. LogEventDecoder turns a file of them back into JSON.
+class BinaryEventEncoder implements EventEncoder {
+
+    @Override
+    public void encode(LogEvent event, ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.putInt(0);
+        buffer.putLong(event.epochMillis());
+        buffer.put((byte) event.logLevel().ordinal());
+        putString(buffer, event.message());
+        buffer.putShort((short) event.fieldCount());
+        for(int i = 0; i < event.fieldCount(); i++) {
+            putString(buffer, event.key(i));
+            buffer.put((byte) event.type(i).ordinal());
+            switch (event.type(i)) {
+                case LONG, DOUBLE -> buffer.putLong(event.longValue(i));
+                case BOOLEAN -> buffer.put((byte) (event.booleanValue(i) ? 1 : 0));
+                case STRING -> putString(buffer, event.stringValue(i));
+            }
+        }
+        buffer.putInt(start, buffer.position() - start - Integer.BYTES);
+    }
+
+    private static void putString(ByteBuffer buffer, CharSequence text) {
+        int length = Utf8.length(text);
+        buffer.putInt(length);
+        if(buffer.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        Utf8.put(buffer, text, length);
+    }
+
+    // Reads the next record into event, false when the buffer holds no complete record.
+    // Decoding allocates the key and string values, it is meant for tools, not the logging path.
+    static boolean decode(ByteBuffer buffer, LogEvent event) {
+        if(buffer.remaining() < Integer.BYTES) return false;
+        int length = buffer.getInt(buffer.position());
+        if(buffer.remaining() < Integer.BYTES + length) return false;
+        buffer.getInt();
+        long epochMillis = buffer.getLong();
+        event.reset(LogLevel.values()[buffer.get()]);
+        event.epochMillis(epochMillis);
+        event.message(getString(buffer));
+        int fields = buffer.getShort() & 0xFFFF;
+        for(int i = 0; i < fields; i++) {
+            String key = getString(buffer);
+            switch (FieldType.values()[buffer.get()]) {
+                case LONG -> event.field(key, buffer.getLong());
+                case DOUBLE -> event.field(key, Double.longBitsToDouble(buffer.getLong()));
+                case BOOLEAN -> event.field(key, buffer.get() != 0);
+                case STRING -> event.field(key, getString(buffer));
+            }
+        }
+        return true;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if(length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String text = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return text;
+    }
+}
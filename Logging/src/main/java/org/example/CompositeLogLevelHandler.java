@@ -0,0 +1,46 @@
+package org.example;
+
+// Several handlers of one level in the chain, each writes the line with its own clock and writer.
+class CompositeLogLevelHandler extends LogLevelHandler {
+    private final LogLevelHandler[] handlers;
+
+    CompositeLogLevelHandler(LogLevelHandler[] handlers) {
+        super(handlers[0].clock, handlers[0].logWriter);
+        this.handlers = handlers;
+    }
+
+    @Override
+    void process(LogLevel configuredLevel, LogLevel logLevel, String message) {
+        if(logLevel.getPriority() >= configuredLevel.getPriority() && logLevel.equals(getLogLevel())) {
+            handle(logLevel, message);
+        }
+    }
+
+    @Override
+    LogLevel getLogLevel() {
+        return handlers[0].getLogLevel();
+    }
+
+    @Override
+    LogLevelHandler withWriter(LogWriter logWriter) {
+        LogLevelHandler[] redirected = new LogLevelHandler[handlers.length];
+        for(int i = 0; i < handlers.length; i++) {
+            redirected[i] = handlers[i].withWriter(logWriter);
+        }
+        return new CompositeLogLevelHandler(redirected);
+    }
+
+    @Override
+    void handle(LogLevel logLevel, CharSequence message) {
+        for(LogLevelHandler handler: handlers) {
+            handler.handle(logLevel, message);
+        }
+    }
+
+    @Override
+    void handle(LogEvent event) {
+        for(LogLevelHandler handler: handlers) {
+            handler.handle(event);
+        }
+    }
+}
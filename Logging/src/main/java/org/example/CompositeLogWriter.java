@@ -0,0 +1,40 @@
+package org.example;
+
+import java.util.List;
+
+// Fans every line out to several writers, in order.
+class CompositeLogWriter implements LogWriter {
+    private final LogWriter[] logWriters;
+
+    CompositeLogWriter(List<LogWriter> logWriters) {
+        this.logWriters = logWriters.toArray(new LogWriter[0]);
+    }
+
+    @Override
+    public void write(LogLevel logLevel, String time, String message) {
+        for(LogWriter logWriter: logWriters) {
+            logWriter.write(logLevel, time, message);
+        }
+    }
+
+    @Override
+    public void write(LogLevel logLevel, CharSequence time, CharSequence message) {
+        for(LogWriter logWriter: logWriters) {
+            logWriter.write(logLevel, time, message);
+        }
+    }
+
+    @Override
+    public void write(LogEvent event) {
+        for(LogWriter logWriter: logWriters) {
+            logWriter.write(event);
+        }
+    }
+
+    @Override
+    public void flush() {
+        for(LogWriter logWriter: logWriters) {
+            logWriter.flush();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.example;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+
+class ConsoleLogWriter implements LogWriter {
+    private final PrintStream out;
+    // lines are encoded here and handed to the stream as bytes, grows to the longest line seen
+    private ByteBuffer encoded;
+
+    ConsoleLogWriter() {
+        this(System.out);
+    }
+
+    ConsoleLogWriter(PrintStream out) {
+        this.out = out;
+        this.encoded = ByteBuffer.allocate(512);
+    }
+
+    @Override
+    public void write(LogLevel logLevel, String time, String message) {
+        write(logLevel, (CharSequence) time, (CharSequence) message);
+    }
+
+    @Override
+    public synchronized void write(LogLevel logLevel, CharSequence time, CharSequence message) {
+        int length = Utf8.lineLength(logLevel, time, message);
+        if(encoded.capacity() < length) {
+            encoded = ByteBuffer.allocate(Integer.highestOneBit(length) << 1);
+        }
+        encoded.clear();
+        Utf8.putLine(encoded, logLevel, time, message);
+        out.write(encoded.array(), 0, encoded.position());
+    }
+
+    @Override
+    public void flush() {
+        out.flush();
+    }
+}
@@ -0,0 +1,30 @@
+package org.example;
+
+import java.time.Clock;
+
+class DebugLogLevelHandler extends LogLevelHandler {
+
+    DebugLogLevelHandler(Clock clock, LogWriter logWriter) {
+        super(clock, logWriter);
+    }
+
+    @Override
+    void process(LogLevel configuredLevel, LogLevel logLevel, String message) {
+        if(logLevel.getPriority() >= configuredLevel.getPriority() && logLevel.equals(LogLevel.DEBUG)) {
+            handle(logLevel, message);
+        }
+        if(this.nextLoggerLevel != null) {
+            this.nextLoggerLevel.process(configuredLevel, logLevel, message);
+        }
+    }
+
+    @Override
+    LogLevel getLogLevel() {
+        return LogLevel.DEBUG;
+    }
+
+    @Override
+    LogLevelHandler withWriter(LogWriter logWriter) {
+        return new DebugLogLevelHandler(clock, logWriter);
+    }
+}
@@ -0,0 +1,30 @@
+package org.example;
+
+import java.time.Clock;
+
+class ErrorLogLevelHandler extends LogLevelHandler {
+
+    ErrorLogLevelHandler(Clock clock, LogWriter logWriter) {
+        super(clock, logWriter);
+    }
+
+    @Override
+    void process(LogLevel configuredLevel, LogLevel logLevel, String message) {
+        if(logLevel.getPriority() >= configuredLevel.getPriority() && logLevel.equals(LogLevel.ERROR)) {
+            handle(logLevel, message);
+        }
+        if(this.nextLoggerLevel != null) {
+            this.nextLoggerLevel.process(configuredLevel, logLevel, message);
+        }
+    }
+
+    @Override
+    LogLevel getLogLevel() {
+        return LogLevel.ERROR;
+    }
+
+    @Override
+    LogLevelHandler withWriter(LogWriter logWriter) {
+        return new ErrorLogLevelHandler(clock, logWriter);
+    }
+}
@@ -0,0 +1,8 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+
+interface EventEncoder {
+    // throws BufferOverflowException when the buffer is too small, the caller grows it and retries
+    void encode(LogEvent event, ByteBuffer buffer);
+}
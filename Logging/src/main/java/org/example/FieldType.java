@@ -0,0 +1,8 @@
+package org.example;
+
+enum FieldType {
+    LONG,
+    DOUBLE,
+    BOOLEAN,
+    STRING
+}
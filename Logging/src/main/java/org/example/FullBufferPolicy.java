@@ -0,0 +1,9 @@
+package org.example;
+
+// What a producer does when the ring is full.
+enum FullBufferPolicy {
+    BLOCK,
+    DROP,
+    // drop messages below the threshold level, block for the rest
+    DROP_BELOW_LEVEL
+}
@@ -0,0 +1,31 @@
+package org.example;
+
+import java.time.Clock;
+
+class InfoLogLevelHandler extends LogLevelHandler {
+
+
+    InfoLogLevelHandler(Clock clock, LogWriter logWriter) {
+        super(clock, logWriter);
+    }
+
+    @Override
+    void process(LogLevel configuredLevel, LogLevel logLevel, String message) {
+        if(logLevel.getPriority() >= configuredLevel.getPriority() && logLevel.equals(LogLevel.INFO)) {
+            handle(logLevel, message);
+        }
+        if(this.nextLoggerLevel != null) {
+            this.nextLoggerLevel.process(configuredLevel, logLevel, message);
+        }
+    }
+
+    @Override
+    LogLevel getLogLevel() {
+        return LogLevel.INFO;
+    }
+
+    @Override
+    LogLevelHandler withWriter(LogWriter logWriter) {
+        return new InfoLogLevelHandler(clock, logWriter);
+    }
+}
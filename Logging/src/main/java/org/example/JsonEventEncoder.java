@@ -0,0 +1,60 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+
+// One JSON object per line: {"time":"...","level":"INFO","message":"...",<fields>}
+// Not thread safe, every writer owns its encoder.
+class JsonEventEncoder implements EventEncoder {
+    private final TimestampFormatter timestampFormatter;
+    private final StringBuilder scratch;
+
+    JsonEventEncoder() {
+        this.timestampFormatter = new TimestampFormatter();
+        this.scratch = new StringBuilder(32);
+    }
+
+    @Override
+    public void encode(LogEvent event, ByteBuffer buffer) {
+        scratch.setLength(0);
+        timestampFormatter.formatTo(event.epochMillis(), scratch);
+        put(buffer, "{\"time\":\"");
+        Utf8.putJson(buffer, scratch);
+        put(buffer, "\",\"level\":\"");
+        put(buffer, event.logLevel().name());
+        put(buffer, "\",\"message\":\"");
+        Utf8.putJson(buffer, event.message());
+        buffer.put((byte) '"');
+        for(int i = 0; i < event.fieldCount(); i++) {
+            put(buffer, ",\"");
+            Utf8.putJson(buffer, event.key(i));
+            put(buffer, "\":");
+            switch (event.type(i)) {
+                case LONG -> Utf8.putAscii(buffer, event.longValue(i));
+                case DOUBLE -> {
+                    double value = event.doubleValue(i);
+                    if(Double.isFinite(value)) {
+                        scratch.setLength(0);
+                        MessageFormatter.appendDouble(scratch, value);
+                        put(buffer, scratch);
+                    } else {
+                        // JSON has no NaN or infinity
+                        put(buffer, "null");
+                    }
+                }
+                case BOOLEAN -> put(buffer, event.booleanValue(i) ? "true" : "false");
+                case STRING -> {
+                    buffer.put((byte) '"');
+                    Utf8.putJson(buffer, event.stringValue(i));
+                    buffer.put((byte) '"');
+                }
+            }
+        }
+        put(buffer, "}\n");
+    }
+
+    private static void put(ByteBuffer buffer, CharSequence ascii) {
+        for(int i = 0; i < ascii.length(); i++) {
+            buffer.put((byte) ascii.charAt(i));
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package org.example;
+
+import java.util.Arrays;
+
+// A log line with typed key-value fields, e.g.
+//   loggerService.atLevel(LogLevel.INFO).message("order placed").field("orderId", 42).field("user", user).log();
+// Events are reused per thread like MessageFormatter and string values are copied into builders the event owns,
+// so once the arrays have grown to the widest event a thread logs, building and writing one allocates nothing.
+// atLevel() returns DISABLED for filtered levels, where every call is a no-op.
+final class LogEvent {
+    static final LogEvent DISABLED = new LogEvent(false);
+    private static final ThreadLocal<LogEvent> EVENTS = ThreadLocal.withInitial(() -> new LogEvent(true));
+
+    private final boolean enabled;
+    private LogLevelHandler handler;
+    private boolean inUse;
+
+    private LogLevel logLevel;
+    private long epochMillis;
+    private final StringBuilder time;
+    private final StringBuilder message;
+    // plain text rendering for writers without structured support
+    private final StringBuilder text;
+
+    private int size;
+    private String[] keys;
+    private FieldType[] types;
+    // longs, booleans as 0/1 and doubles as raw bits
+    private long[] numbers;
+    private StringBuilder[] strings;
+
+    LogEvent() {
+        this(true);
+    }
+
+    private LogEvent(boolean enabled) {
+        this.enabled = enabled;
+        this.time = new StringBuilder(32);
+        this.message = new StringBuilder(128);
+        this.text = new StringBuilder(256);
+        this.keys = new String[8];
+        this.types = new FieldType[8];
+        this.numbers = new long[8];
+        this.strings = new StringBuilder[8];
+    }
+
+    static LogEvent start(LogLevelHandler handler, LogLevel logLevel) {
+        LogEvent event = EVENTS.get();
+        if(event.inUse) {
+            // an event is being built around this one, or one was dropped by an exception before log().
+            // The thread gets a new pooled event and the old one is left to whoever still holds it,
+            // so an abandoned event costs one allocation instead of one per event from then on.
+            event = new LogEvent(true);
+            EVENTS.set(event);
+        }
+        event.inUse = true;
+        event.handler = handler;
+        event.reset(logLevel);
+        return event;
+    }
+
+    void reset(LogLevel logLevel) {
+        this.logLevel = logLevel;
+        this.epochMillis = 0;
+        this.time.setLength(0);
+        this.message.setLength(0);
+        this.size = 0;
+    }
+
+    LogEvent message(CharSequence message) {
+        if(enabled) {
+            this.message.setLength(0);
+            this.message.append(message);
+        }
+        return this;
+    }
+
+    LogEvent field(String key, long value) {
+        if(enabled) add(key, FieldType.LONG).numbers[size++] = value;
+        return this;
+    }
+
+    LogEvent field(String key, double value) {
+        if(enabled) add(key, FieldType.DOUBLE).numbers[size++] = Double.doubleToRawLongBits(value);
+        return this;
+    }
+
+    LogEvent field(String key, boolean value) {
+        if(enabled) add(key, FieldType.BOOLEAN).numbers[size++] = value ? 1 : 0;
+        return this;
+    }
+
+    LogEvent field(String key, CharSequence value) {
+        if(enabled) {
+            add(key, FieldType.STRING);
+            if(strings[size] == null) {
+                strings[size] = new StringBuilder(32);
+            }
+            strings[size].setLength(0);
+            strings[size++].append(value == null ? "null" : value);
+        }
+        return this;
+    }
+
+    private LogEvent add(String key, FieldType type) {
+        if(size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            types = Arrays.copyOf(types, size * 2);
+            numbers = Arrays.copyOf(numbers, size * 2);
+            strings = Arrays.copyOf(strings, size * 2);
+        }
+        keys[size] = key;
+        types[size] = type;
+        return this;
+    }
+
+    // hands the event to the handler of its level, the event must not be used afterwards
+    void log() {
+        if(!enabled) return;
+        try {
+            handler.handle(this);
+        } finally {
+            handler = null;
+            inUse = false;
+        }
+    }
+
+    void stamp(long epochMillis, TimestampFormatter timestampFormatter) {
+        this.epochMillis = epochMillis;
+        this.time.setLength(0);
+        timestampFormatter.formatTo(epochMillis, time);
+    }
+
+    void copyFrom(LogEvent other) {
+        reset(other.logLevel);
+        this.epochMillis = other.epochMillis;
+        this.time.append(other.time);
+        this.message.append(other.message);
+        for(int i = 0; i < other.size; i++) {
+            switch (other.types[i]) {
+                case STRING -> field(other.keys[i], other.strings[i]);
+                default -> add(other.keys[i], other.types[i]).numbers[size++] = other.numbers[i];
+            }
+        }
+    }
+
+    LogLevel logLevel() {
+        return logLevel;
+    }
+
+    long epochMillis() {
+        return epochMillis;
+    }
+
+    void epochMillis(long epochMillis) {
+        this.epochMillis = epochMillis;
+    }
+
+    CharSequence time() {
+        return time;
+    }
+
+    CharSequence message() {
+        return message;
+    }
+
+    int fieldCount() {
+        return size;
+    }
+
+    String key(int index) {
+        return keys[index];
+    }
+
+    FieldType type(int index) {
+        return types[index];
+    }
+
+    long longValue(int index) {
+        return numbers[index];
+    }
+
+    double doubleValue(int index) {
+        return Double.longBitsToDouble(numbers[index]);
+    }
+
+    boolean booleanValue(int index) {
+        return numbers[index] != 0;
+    }
+
+    CharSequence stringValue(int index) {
+        return strings[index];
+    }
+
+    // "<message> key=value key=value"
+    CharSequence text() {
+        text.setLength(0);
+        text.append(message);
+        for(int i = 0; i < size; i++) {
+            text.append(' ').append(keys[i]).append('=');
+            switch (types[i]) {
+                case LONG -> text.append(numbers[i]);
+                case DOUBLE -> MessageFormatter.appendDouble(text, doubleValue(i));
+                case BOOLEAN -> text.append(booleanValue(i));
+                case STRING -> text.append(strings[i]);
+            }
+        }
+        return text;
+    }
+}
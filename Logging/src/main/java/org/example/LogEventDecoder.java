@@ -0,0 +1,47 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Prints a file written with BinaryEventEncoder as JSON lines.
+// Usage: java -cp target/classes org.example.LogEventDecoder <file>
+public class LogEventDecoder {
+
+    public static void main(String[] args) throws IOException {
+        if(args.length != 1) {
+            System.err.println("Usage: LogEventDecoder <file>");
+            return;
+        }
+        decode(ByteBuffer.wrap(Files.readAllBytes(Path.of(args[0]))), System.out);
+    }
+
+    // returns the number of complete records, a torn record at the end of the file is reported and skipped
+    static int decode(ByteBuffer records, PrintStream out) {
+        LogEvent event = new LogEvent();
+        EventEncoder json = new JsonEventEncoder();
+        ByteBuffer line = ByteBuffer.allocate(1024);
+        int count = 0;
+        while(BinaryEventEncoder.decode(records, event)) {
+            while(true) {
+                line.clear();
+                try {
+                    json.encode(event, line);
+                    break;
+                } catch (BufferOverflowException e) {
+                    line = ByteBuffer.allocate(line.capacity() * 2);
+                }
+            }
+            out.write(line.array(), 0, line.position());
+            count++;
+        }
+        if(records.hasRemaining()) {
+            System.err.println("Skipped " + records.remaining() + " trailing bytes of an incomplete record");
+        }
+        out.flush();
+        return count;
+    }
+}
@@ -0,0 +1,44 @@
+package org.example;
+
+import java.time.Clock;
+
+abstract class LogLevelHandler {
+    private static final ThreadLocal<StringBuilder> TIME = ThreadLocal.withInitial(() -> new StringBuilder(32));
+
+    protected LogLevelHandler nextLoggerLevel;
+    protected final Clock clock;
+    protected final LogWriter logWriter;
+    protected final TimestampFormatter timestampFormatter;
+
+    LogLevelHandler(Clock clock, LogWriter logWriter) {
+        this.clock = clock;
+        this.logWriter = logWriter;
+        this.timestampFormatter = new TimestampFormatter();
+    }
+
+    public void setNextLoggerLevel(LogLevelHandler nextLoggerLevel) {
+        this.nextLoggerLevel = nextLoggerLevel;
+    }
+
+    abstract void process(LogLevel configuredLevel, LogLevel logLevel, String message);
+
+    // the level this handler writes, LoggerService uses it to index the chain by level
+    abstract LogLevel getLogLevel();
+
+    // the same handler writing elsewhere, LoggerService uses it for categories with their own writers
+    abstract LogLevelHandler withWriter(LogWriter logWriter);
+
+    // writes unconditionally, the level check already happened in LoggerService
+    void handle(LogLevel logLevel, CharSequence message) {
+        StringBuilder time = TIME.get();
+        time.setLength(0);
+        timestampFormatter.formatTo(clock.millis(), time);
+        this.logWriter.write(logLevel, time, message);
+    }
+
+    void handle(LogEvent event) {
+        event.stamp(clock.millis(), timestampFormatter);
+        this.logWriter.write(event);
+    }
+
+}
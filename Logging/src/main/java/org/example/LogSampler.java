@@ -0,0 +1,77 @@
+package org.example;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Hands out LogSites and every summaryIntervalMillis logs how many lines each of them suppressed.
+// Call sites are registered once, usually into a static final field, templates are looked up by their
+// pattern and share templateRule; patterns are expected to be literals, so that map stays small.
+// The per-second windows use a clock ticked by the sampler's own thread, keeping clock reads off the hot path.
+class LogSampler {
+    private static final long TICK_MILLIS = 10;
+
+    private final Logger summaryLogger;
+    private final LogLevel summaryLevel;
+    private final SamplingRule templateRule;
+    private final long summaryIntervalMillis;
+    private final List<LogSite> sites;
+    private final Map<String, LogSite> templates;
+    private final ScheduledExecutorService scheduler;
+    private volatile long coarseMillis;
+
+    LogSampler(Logger summaryLogger, LogLevel summaryLevel, SamplingRule templateRule, long summaryIntervalMillis) {
+        this.summaryLogger = summaryLogger;
+        this.summaryLevel = summaryLevel;
+        this.templateRule = templateRule;
+        this.summaryIntervalMillis = summaryIntervalMillis;
+        this.sites = new CopyOnWriteArrayList<>();
+        this.templates = new ConcurrentHashMap<>();
+        this.coarseMillis = System.currentTimeMillis();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "log-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleAtFixedRate(() -> coarseMillis = System.currentTimeMillis(),
+                TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        this.scheduler.scheduleAtFixedRate(this::emitSummary,
+                summaryIntervalMillis, summaryIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    LogSite site(String name, SamplingRule rule) {
+        LogSite site = new LogSite(name, rule, this);
+        sites.add(site);
+        return site;
+    }
+
+    LogSite template(String pattern) {
+        LogSite site = templates.get(pattern);
+        if(site != null) return site;
+        return templates.computeIfAbsent(pattern, key -> site(key, templateRule));
+    }
+
+    long currentSecond() {
+        return coarseMillis / 1000;
+    }
+
+    void emitSummary() {
+        for(LogSite site: sites) {
+            long suppressed = site.drainSuppressed();
+            if(suppressed > 0) {
+                summaryLogger.log(summaryLevel, "sampling suppressed {} lines of \"{}\" in the last {} ms",
+                        suppressed, site.getName(), summaryIntervalMillis);
+            }
+        }
+    }
+
+    // emits a last summary so nothing suppressed goes unreported
+    void shutdown() {
+        scheduler.shutdownNow();
+        emitSummary();
+    }
+}
@@ -0,0 +1,54 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// One sampled call site or message template. Guards the log call:
+//   if(SHIPPED.sample()) orders.log(LogLevel.INFO, "order {} shipped", id);
+// A suppressed line costs a counter update and never reaches the handlers or writers.
+final class LogSite {
+    private final String name;
+    private final SamplingRule rule;
+    private final LogSampler sampler;
+    // EVERY_NTH: occurrences so far. PER_SECOND: window second in the high 32 bits, lines passed in it in the low 32
+    private final AtomicLong state;
+    private final LongAdder suppressed;
+
+    LogSite(String name, SamplingRule rule, LogSampler sampler) {
+        this.name = name;
+        this.rule = rule;
+        this.sampler = sampler;
+        this.state = new AtomicLong();
+        this.suppressed = new LongAdder();
+    }
+
+    boolean sample() {
+        if(rule.mode() == SamplingMode.EVERY_NTH) {
+            if(state.getAndIncrement() % rule.n() == 0) return true;
+            suppressed.increment();
+            return false;
+        }
+        long second = sampler.currentSecond();
+        while(true) {
+            long current = state.get();
+            if(current >>> 32 != second) {
+                if(state.compareAndSet(current, second << 32 | 1)) return true;
+                continue;
+            }
+            if((int) current >= rule.n()) {
+                // the window is full, read only apart from the striped counter
+                suppressed.increment();
+                return false;
+            }
+            if(state.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    long drainSuppressed() {
+        return suppressed.sumThenReset();
+    }
+}
@@ -0,0 +1,20 @@
+package org.example;
+
+interface LogWriter {
+    void write(LogLevel logLevel, String time, String message);
+
+    // time and message may be reused buffers, only valid for the duration of the call.
+    // Writers that can consume them without copying override this to stay garbage free.
+    default void write(LogLevel logLevel, CharSequence time, CharSequence message) {
+        write(logLevel, time.toString(), message.toString());
+    }
+
+    // structured writers override this, the rest get the event as "<message> key=value ..."
+    default void write(LogEvent event) {
+        write(event.logLevel(), event.time(), event.text());
+    }
+
+    // writers that buffer push their pending output here, async writers call it once per batch
+    default void flush() {
+    }
+}
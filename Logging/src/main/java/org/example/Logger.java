@@ -0,0 +1,110 @@
+package org.example;
+
+// A named logger. The level check is one volatile read of a table indexed by LogLevel.ordinal(), which
+// LoggerService recomputes for every logger whenever levels or writers change, so a reconfiguration is
+// picked up by the next call without any locking on the logging path.
+class Logger {
+    private final String name;
+    // handler per LogLevel.ordinal(), null when the level is filtered out for this logger
+    private volatile LogLevelHandler[] handlers;
+
+    Logger(String name) {
+        this.name = name;
+        this.handlers = new LogLevelHandler[LogLevel.values().length];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    void setHandlers(LogLevelHandler[] handlers) {
+        this.handlers = handlers;
+    }
+
+    // starts a structured event, LogEvent.DISABLED when the level is filtered out
+    public LogEvent atLevel(LogLevel logLevel) {
+        LogLevelHandler handler = handlers[logLevel.ordinal()];
+        return handler == null ? LogEvent.DISABLED : LogEvent.start(handler, logLevel);
+    }
+
+    public boolean isEnabled(LogLevel logLevel) {
+        return handlers[logLevel.ordinal()] != null;
+    }
+
+    public void log(LogLevel logLevel, String message) {
+        LogLevelHandler handler = handlers[logLevel.ordinal()];
+        if(handler != null) {
+            handler.handle(logLevel, message);
+        }
+    }
+
+    // Parameterized variants fill "{}" placeholders in order, the message is only built when the level is enabled.
+    // The fixed arity and primitive overloads avoid the varargs array and boxing at the call site.
+
+    public void log(LogLevel logLevel, String pattern, Object arg) {
+        LogLevelHandler handler = handlers[logLevel.ordinal()];
+        if(handler == null) return;
+        write(handler, logLevel, MessageFormatter.start(pattern).arg(arg));
+    }
+
+    public void log(LogLevel logLevel, String pattern, Object arg1, Object arg2) {
+        LogLevelHandler handler = handlers[logLevel.ordinal()];
+        if(handler == null) return;
+        write(handler, logLevel, MessageFormatter.start(pattern).arg(arg1).arg(arg2));
+    }
+
+    public void log(LogLevel logLevel, String pattern, Object arg1, Object arg2, Object arg3) {
+        LogLevelHandler handler = handlers[logLevel.ordinal()];
+        if(handler == null) return;
+        write(handler, logLevel, MessageFormatter.start(pattern).arg(arg1).arg(arg2).arg(arg3));
+    }
+
+    public void log(LogLevel logLevel, String pattern, Object... args) {
+        LogLevelHandler handler = handlers[logLevel.ordinal()];
+        if(handler == null) return;
+        MessageFormatter formatter = MessageFormatter.start(pattern);
+        for(Object arg: args) {
+            formatter.arg(arg);
+        }
+        write(handler, logLevel, formatter);
+    }
+
+    public void log(LogLevel logLevel, String pattern, long arg) {
+        LogLevelHandler handler = handlers[logLevel.ordinal()];
+        if(handler == null) return;
+        write(handler, logLevel, MessageFormatter.start(pattern).arg(arg));
+    }
+
+    public void log(LogLevel logLevel, String pattern, long arg1, long arg2) {
+        LogLevelHandler handler = handlers[logLevel.ordinal()];
+        if(handler == null) return;
+        write(handler, logLevel, MessageFormatter.start(pattern).arg(arg1).arg(arg2));
+    }
+
+    public void log(LogLevel logLevel, String pattern, double arg) {
+        LogLevelHandler handler = handlers[logLevel.ordinal()];
+        if(handler == null) return;
+        write(handler, logLevel, MessageFormatter.start(pattern).arg(arg));
+    }
+
+    public void log(LogLevel logLevel, String pattern, boolean arg) {
+        LogLevelHandler handler = handlers[logLevel.ordinal()];
+        if(handler == null) return;
+        write(handler, logLevel, MessageFormatter.start(pattern).arg(arg));
+    }
+
+    public void log(LogLevel logLevel, String pattern, Object arg1, long arg2) {
+        LogLevelHandler handler = handlers[logLevel.ordinal()];
+        if(handler == null) return;
+        write(handler, logLevel, MessageFormatter.start(pattern).arg(arg1).arg(arg2));
+    }
+
+    private static void write(LogLevelHandler handler, LogLevel logLevel, MessageFormatter formatter) {
+        try {
+            handler.handle(logLevel, formatter.finish());
+        } finally {
+            formatter.release();
+        }
+    }
+
+}
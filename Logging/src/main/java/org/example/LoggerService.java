@@ -0,0 +1,151 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Registry of named loggers. Categories are dot separated, "shop.orders" inherits from "shop", which inherits from
+// the root "". A category without a level of its own takes the nearest ancestor's, the root level is the one
+// passed to getInstance. Writers attached to a category receive its lines and those of every category below it,
+// on top of the handler chain's own writers. The service itself is the root logger.
+class LoggerService extends Logger {
+    private static volatile LoggerService instance = null;
+    private static final String ROOT = "";
+
+    private final LogLevelHandler chainHead;
+    // handlers of the chain per LogLevel.ordinal() in chain order, whatever the configured level
+    private final LogLevelHandler[][] chain;
+    // guarded by this
+    private final Map<String, LogLevel> levels;
+    private final Map<String, List<LogWriter>> writers;
+    private final Map<String, Logger> loggers;
+
+    private LoggerService(LogLevelHandler logLevelHandler, LogLevel configuredLevel){
+        super(ROOT);
+        this.chainHead = logLevelHandler;
+        this.chain = new LogLevelHandler[LogLevel.values().length][0];
+        for(LogLevelHandler handler = logLevelHandler; handler != null; handler = handler.nextLoggerLevel) {
+            // walking the chain hands a message to every handler of its level, not just the first
+            int level = handler.getLogLevel().ordinal();
+            chain[level] = Arrays.copyOf(chain[level], chain[level].length + 1);
+            chain[level][chain[level].length - 1] = handler;
+        }
+        this.levels = new HashMap<>();
+        this.writers = new HashMap<>();
+        this.loggers = new ConcurrentHashMap<>();
+        this.levels.put(ROOT, configuredLevel);
+        this.loggers.put(ROOT, this);
+        refresh(this);
+    }
+
+    // The first call creates the service. Later calls with the same chain apply configuredLevel to the root,
+    // a different chain is rejected instead of being silently ignored.
+    public static LoggerService getInstance(LogLevelHandler logLevelHandler, LogLevel configuredLevel) {
+        if(instance == null) {
+            synchronized (LoggerService.class) {
+                if(instance == null) {
+                    instance = new LoggerService(logLevelHandler, configuredLevel);
+                    return instance;
+                }
+            }
+        }
+        if(instance.chainHead != logLevelHandler) {
+            throw new IllegalStateException("LoggerService is already initialised with a different handler chain");
+        }
+        instance.setLevel(ROOT, configuredLevel);
+        return instance;
+    }
+
+    public static LoggerService getInstance() {
+        if(instance == null) {
+            throw new IllegalStateException("LoggerService is not initialised");
+        }
+        return instance;
+    }
+
+    public Logger getLogger(String name) {
+        Logger logger = loggers.get(name);
+        if(logger != null) return logger;
+        synchronized (this) {
+            return loggers.computeIfAbsent(name, category -> {
+                Logger created = new Logger(category);
+                refresh(created);
+                return created;
+            });
+        }
+    }
+
+    // null clears the category's own level so it inherits again, the root always keeps one
+    public synchronized void setLevel(String category, LogLevel logLevel) {
+        if(logLevel == null) {
+            if(ROOT.equals(category)) {
+                throw new IllegalArgumentException("The root level can't be cleared");
+            }
+            levels.remove(category);
+        } else {
+            levels.put(category, logLevel);
+        }
+        refreshAll();
+    }
+
+    public synchronized void addWriter(String category, LogWriter logWriter) {
+        writers.computeIfAbsent(category, k -> new ArrayList<>()).add(logWriter);
+        refreshAll();
+    }
+
+    public synchronized void removeWriter(String category, LogWriter logWriter) {
+        List<LogWriter> attached = writers.get(category);
+        if(attached != null && attached.remove(logWriter) && attached.isEmpty()) {
+            writers.remove(category);
+        }
+        refreshAll();
+    }
+
+    public synchronized LogLevel getEffectiveLevel(String category) {
+        for(String name = category; name != null; name = parent(name)) {
+            LogLevel logLevel = levels.get(name);
+            if(logLevel != null) return logLevel;
+        }
+        throw new IllegalStateException("Root level missing");
+    }
+
+    public LogLevel getConfiguredLevel() {
+        return getEffectiveLevel(ROOT);
+    }
+
+    private static String parent(String category) {
+        if(ROOT.equals(category)) return null;
+        int dot = category.lastIndexOf('.');
+        return dot < 0 ? ROOT : category.substring(0, dot);
+    }
+
+    private void refreshAll() {
+        for(Logger logger: loggers.values()) {
+            refresh(logger);
+        }
+    }
+
+    private synchronized void refresh(Logger logger) {
+        LogLevel logLevel = getEffectiveLevel(logger.getName());
+        List<LogWriter> attached = new ArrayList<>();
+        for(String name = logger.getName(); name != null; name = parent(name)) {
+            attached.addAll(writers.getOrDefault(name, List.of()));
+        }
+        LogLevelHandler[] handlers = new LogLevelHandler[chain.length];
+        for(LogLevel level: LogLevel.values()) {
+            LogLevelHandler[] matching = chain[level.ordinal()].clone();
+            if(matching.length == 0 || level.getPriority() < logLevel.getPriority()) continue;
+            if(!attached.isEmpty()) {
+                // the category's writers get the line once, through the first handler
+                List<LogWriter> targets = new ArrayList<>(attached);
+                targets.add(0, matching[0].logWriter);
+                matching[0] = matching[0].withWriter(new CompositeLogWriter(targets));
+            }
+            handlers[level.ordinal()] = matching.length == 1 ? matching[0] : new CompositeLogLevelHandler(matching);
+        }
+        logger.setHandlers(handlers);
+    }
+}
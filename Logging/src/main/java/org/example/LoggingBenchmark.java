@@ -0,0 +1,332 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+
+// Plain main() harness, run with: java -cp target/classes org.example.LoggingBenchmark [async|file|levels|alloc|events|sampling]
+// Console output goes to /dev/null so the numbers measure the logging path, not the terminal.
+public class LoggingBenchmark {
+    private static final int MESSAGES_PER_THREAD = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "async";
+        switch (mode) {
+            case "async" -> asyncWriter();
+            case "file" -> fileWriter();
+            case "levels" -> levels();
+            case "alloc" -> allocation();
+            case "events" -> events();
+            case "sampling" -> sampling();
+            default -> System.err.println("Unknown mode " + mode);
+        }
+    }
+
+    private static OutputStream devNull() {
+        try {
+            return new FileOutputStream("/dev/null");
+        } catch (FileNotFoundException e) {
+            return OutputStream.nullOutputStream();
+        }
+    }
+
+    private static void asyncWriter() throws InterruptedException {
+        System.out.println("writer | threads | msgs/s | p50 ns | p99 ns | p99.9 ns | max ns");
+        for(int threads: new int[]{1, 4}) {
+            LogWriter sync = new ConsoleLogWriter(new PrintStream(devNull(), true));
+            report("sync console", threads, sync);
+
+            AsyncLogWriter async = new AsyncLogWriter(
+                    new ConsoleLogWriter(new PrintStream(new BufferedOutputStream(devNull(), 1 << 16), false)),
+                    1 << 14, FullBufferPolicy.BLOCK);
+            report("async ring", threads, async);
+            async.shutdown();
+        }
+    }
+
+    // buffered stream file writer against mapped segments, both with and without background fsync
+    private static void fileWriter() throws Exception {
+        File dir = Files.createTempDirectory("log-bench").toFile();
+        System.out.println("writer | threads | msgs/s | p50 ns | p99 ns | p99.9 ns | max ns");
+        for(int threads: new int[]{1, 4}) {
+            PrintStream stream = new PrintStream(new BufferedOutputStream(
+                    new FileOutputStream(new File(dir, "stream-" + threads + ".log")), 1 << 16), false);
+            LogWriter streamWriter = new ConsoleLogWriter(stream);
+            // PrintStream is internally synchronized, same as the mapped writer
+            report("stream file", threads, streamWriter);
+            stream.close();
+
+            MappedFileLogWriter mapped = new MappedFileLogWriter(dir, "mapped-" + threads, 16 << 20, 0, 0);
+            report("mapped", threads, mapped);
+            mapped.close();
+
+            MappedFileLogWriter synced = new MappedFileLogWriter(dir, "synced-" + threads, 16 << 20, 0, 100);
+            report("mapped+fsync", threads, synced);
+            synced.close();
+        }
+        File[] files = dir.listFiles();
+        long bytes = 0;
+        for(File file: files) {
+            bytes += file.length();
+            file.delete();
+        }
+        dir.delete();
+        System.out.println(files.length + " files, " + (bytes >> 20) + " MB written");
+    }
+
+    // cost of a log call through the handler chain against the per-level table, for a disabled and an enabled level
+    private static void levels() throws InterruptedException {
+        Clock clock = Clock.systemUTC();
+        LogWriter discard = (logLevel, time, message) -> sink += message.length() + time.length();
+        LogLevelHandler error = new ErrorLogLevelHandler(clock, discard);
+        LogLevelHandler debug = new DebugLogLevelHandler(clock, discard);
+        LogLevelHandler info = new InfoLogLevelHandler(clock, discard);
+        error.setNextLoggerLevel(debug);
+        debug.setNextLoggerLevel(info);
+        LoggerService loggerService = LoggerService.getInstance(error, LogLevel.ERROR);
+
+        System.out.println("path | level | ns/op");
+        for(int round = 0; round < 3; round++) {
+            boolean last = round == 2;
+            measure("chain", LogLevel.DEBUG, last, () -> error.process(LogLevel.ERROR, LogLevel.DEBUG, "cache miss"));
+            measure("table", LogLevel.DEBUG, last, () -> loggerService.log(LogLevel.DEBUG, "cache miss"));
+            measure("isEnabled", LogLevel.DEBUG, last, () -> {
+                if(loggerService.isEnabled(LogLevel.DEBUG)) loggerService.log(LogLevel.DEBUG, "cache miss");
+            });
+            measure("chain", LogLevel.ERROR, last, () -> error.process(LogLevel.ERROR, LogLevel.ERROR, "cache miss"));
+            measure("table", LogLevel.ERROR, last, () -> loggerService.log(LogLevel.ERROR, "cache miss"));
+            Logger category = loggerService.getLogger("shop.orders.eu");
+            measure("category", LogLevel.DEBUG, last, () -> category.log(LogLevel.DEBUG, "cache miss"));
+        }
+        System.out.println("sink " + sink);
+        reconfigureWhileLogging(loggerService);
+    }
+
+    // threads log through a category while another flips its parent's level every millisecond
+    private static void reconfigureWhileLogging(LoggerService loggerService) throws InterruptedException {
+        LongAdder attached = new LongAdder();
+        loggerService.addWriter("shop.orders", (logLevel, time, message) -> attached.increment());
+        Logger orders = loggerService.getLogger("shop.orders.eu");
+        int threads = 4;
+        int calls = 2_000_000;
+        AtomicBoolean done = new AtomicBoolean();
+        Thread toggler = new Thread(() -> {
+            boolean verbose = false;
+            while(!done.get()) {
+                verbose = !verbose;
+                loggerService.setLevel("shop", verbose ? LogLevel.INFO : LogLevel.ERROR);
+                LockSupport.parkNanos(1_000_000);
+            }
+        });
+        toggler.start();
+        CountDownLatch finished = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for(int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for(int i = 0; i < calls; i++) {
+                    orders.log(LogLevel.INFO, "order {} shipped", i);
+                }
+                finished.countDown();
+            }).start();
+        }
+        finished.await();
+        long elapsed = System.nanoTime() - start;
+        done.set(true);
+        toggler.join();
+        System.out.printf("reconfigured while logging: %d calls/s, %d of %d lines passed the level%n",
+                threads * calls * 1_000_000_000L / elapsed, attached.sum(), threads * calls);
+    }
+
+    private static long sink;
+
+    // earlier rounds only warm up the JIT
+    private static void measure(String name, LogLevel level, boolean print, Runnable call) {
+        int iterations = 5_000_000;
+        long start = System.nanoTime();
+        for(int i = 0; i < iterations; i++) {
+            call.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        if(print) {
+            System.out.printf("%-9s | %-5s | %.2f%n", name, level, (double) elapsed / iterations);
+        }
+    }
+
+    // bytes allocated per call on the logging thread, eager concatenation against the parameterized api
+    private static void allocation() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Clock clock = Clock.systemUTC();
+        LogWriter writer = new ConsoleLogWriter(new PrintStream(new BufferedOutputStream(devNull(), 1 << 16), false));
+        LogLevelHandler error = new ErrorLogLevelHandler(clock, writer);
+        LogLevelHandler debug = new DebugLogLevelHandler(clock, writer);
+        LogLevelHandler info = new InfoLogLevelHandler(clock, writer);
+        error.setNextLoggerLevel(debug);
+        debug.setNextLoggerLevel(info);
+        // INFO is filtered out, DEBUG and ERROR are written
+        LoggerService loggerService = LoggerService.getInstance(error, LogLevel.DEBUG);
+        String user = "alice";
+
+        System.out.println("call | level | bytes/op | ns/op");
+        for(int round = 0; round < 3; round++) {
+            boolean last = round == 2;
+            allocations(threads, "concat", LogLevel.INFO, last,
+                    i -> loggerService.log(LogLevel.INFO, "user " + user + " placed order " + i));
+            allocations(threads, "pattern", LogLevel.INFO, last,
+                    i -> loggerService.log(LogLevel.INFO, "user {} placed order {}", user, i));
+            allocations(threads, "concat", LogLevel.ERROR, last,
+                    i -> loggerService.log(LogLevel.ERROR, "user " + user + " placed order " + i));
+            allocations(threads, "pattern", LogLevel.ERROR, last,
+                    i -> loggerService.log(LogLevel.ERROR, "user {} placed order {}", user, i));
+            allocations(threads, "chain", LogLevel.ERROR, last,
+                    i -> error.process(LogLevel.DEBUG, LogLevel.ERROR, "user " + user + " placed order " + i));
+        }
+    }
+
+    // the same line as text, JSON and binary event, plus a binary round trip through LogEventDecoder
+    private static void events() throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Clock clock = Clock.systemUTC();
+        LogLevelHandler text = new InfoLogLevelHandler(clock,
+                new ConsoleLogWriter(new PrintStream(new BufferedOutputStream(devNull(), 1 << 16), false)));
+        LogLevelHandler json = new InfoLogLevelHandler(clock,
+                new StructuredLogWriter(new BufferedOutputStream(devNull(), 1 << 16), new JsonEventEncoder()));
+        LogLevelHandler binary = new InfoLogLevelHandler(clock,
+                new StructuredLogWriter(new BufferedOutputStream(devNull(), 1 << 16), new BinaryEventEncoder()));
+        String user = "alice";
+
+        System.out.println("call | level | bytes/op | ns/op");
+        for(int round = 0; round < 3; round++) {
+            boolean last = round == 2;
+            allocations(threads, "text", LogLevel.INFO, last, i -> {
+                MessageFormatter formatter = MessageFormatter.start("order placed orderId={} user={} amount={}")
+                        .arg(i).arg(user).arg(i * 0.25);
+                text.handle(LogLevel.INFO, formatter.finish());
+                formatter.release();
+            });
+            allocations(threads, "json", LogLevel.INFO, last, i -> LogEvent.start(json, LogLevel.INFO)
+                    .message("order placed").field("orderId", i).field("user", user).field("amount", i * 0.25).log());
+            allocations(threads, "binary", LogLevel.INFO, last, i -> LogEvent.start(binary, LogLevel.INFO)
+                    .message("order placed").field("orderId", i).field("user", user).field("amount", i * 0.25).log());
+        }
+
+        File file = Files.createTempFile("events", ".bin").toFile();
+        try(FileOutputStream out = new FileOutputStream(file)) {
+            LogLevelHandler handler = new InfoLogLevelHandler(clock, new StructuredLogWriter(out, new BinaryEventEncoder()));
+            for(int i = 0; i < 3; i++) {
+                LogEvent.start(handler, LogLevel.INFO).message("order \"placed\"").field("orderId", i)
+                        .field("user", "zoë").field("amount", i * 0.25).field("retry", i == 2).log();
+            }
+        }
+        System.out.println("decoded " + LogEventDecoder.decode(ByteBuffer.wrap(Files.readAllBytes(file.toPath())), System.out)
+                + " records from " + file.length() + " bytes");
+        file.delete();
+    }
+
+    // four threads hammering the same line, unsampled against a call site and a template sampler
+    private static void sampling() throws InterruptedException {
+        Clock clock = Clock.systemUTC();
+        LongAdder written = new LongAdder();
+        LogWriter counting = (logLevel, time, message) -> written.increment();
+        LogLevelHandler error = new ErrorLogLevelHandler(clock, counting);
+        LogLevelHandler debug = new DebugLogLevelHandler(clock, counting);
+        LogLevelHandler info = new InfoLogLevelHandler(clock, counting);
+        error.setNextLoggerLevel(debug);
+        debug.setNextLoggerLevel(info);
+        LoggerService loggerService = LoggerService.getInstance(error, LogLevel.INFO);
+        loggerService.addWriter("sampling", new ConsoleLogWriter());
+        Logger orders = loggerService.getLogger("shop.orders");
+        LogSampler sampler = new LogSampler(loggerService.getLogger("sampling"), LogLevel.INFO,
+                SamplingRule.perSecond(100), 500);
+        LogSite everyThousandth = sampler.site("order shipped, 1 in 1000", SamplingRule.everyNth(1000));
+        String pattern = "order {} shipped";
+
+        System.out.println("path | calls/s | written");
+        for(int round = 0; round < 2; round++) {
+            boolean last = round == 1;
+            hammer("unsampled", last, written, i -> orders.log(LogLevel.INFO, pattern, i));
+            hammer("1 in 1000", last, written, i -> {
+                if(everyThousandth.sample()) orders.log(LogLevel.INFO, pattern, i);
+            });
+            hammer("100/s", last, written, i -> {
+                if(sampler.template(pattern).sample()) orders.log(LogLevel.INFO, pattern, i);
+            });
+        }
+        sampler.shutdown();
+    }
+
+    private static void hammer(String name, boolean print, LongAdder written, LongConsumer call) throws InterruptedException {
+        int threads = 4;
+        int calls = 2_000_000;
+        written.reset();
+        CountDownLatch finished = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for(int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for(int i = 0; i < calls; i++) {
+                    call.accept(i);
+                }
+                finished.countDown();
+            }).start();
+        }
+        finished.await();
+        long elapsed = System.nanoTime() - start;
+        if(print) {
+            System.out.printf("%-9s | %10d | %d%n", name, threads * calls * 1_000_000_000L / elapsed, written.sum());
+        }
+    }
+
+    private static void allocations(com.sun.management.ThreadMXBean threads, String name, LogLevel level,
+                                    boolean print, LongConsumer call) {
+        int iterations = 1_000_000;
+        long id = Thread.currentThread().threadId();
+        long bytesBefore = threads.getThreadAllocatedBytes(id);
+        long start = System.nanoTime();
+        for(int i = 0; i < iterations; i++) {
+            call.accept(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(id) - bytesBefore;
+        if(print) {
+            System.out.printf("%-7s | %-5s | %8.1f | %.1f%n", name, level, (double) bytes / iterations, (double) elapsed / iterations);
+        }
+    }
+
+    private static void report(String name, int threads, LogWriter writer) throws InterruptedException {
+        long[][] latencies = new long[threads][MESSAGES_PER_THREAD];
+        CountDownLatch done = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for(int t = 0; t < threads; t++) {
+            long[] mine = latencies[t];
+            new Thread(() -> {
+                for(int i = 0; i < MESSAGES_PER_THREAD; i++) {
+                    long before = System.nanoTime();
+                    writer.write(LogLevel.INFO, "2026-10-19T15:26:55.982Z", "order accepted");
+                    mine[i] = System.nanoTime() - before;
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        writer.flush();
+        long elapsed = System.nanoTime() - start;
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%-12s | %7d | %8d | %6d | %6d | %8d | %d%n", name, threads,
+                all.length * 1_000_000_000L / elapsed,
+                all[all.length / 2], all[(int) (all.length * 0.99)], all[(int) (all.length * 0.999)], all[all.length - 1]);
+    }
+}
@@ -0,0 +1,184 @@
+package org.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// Appends log lines into fixed size memory mapped segments: <dir>/<baseName>-<n>.log.
+// A segment is rolled when the next line doesn't fit or when it has been open for rollIntervalMillis.
+// The next segment is always created and mapped in the background ahead of time, so a roll is only a
+// reference swap on the writing thread. Lines are encoded as UTF-8 straight into the mapped buffer.
+// With fsyncIntervalMillis > 0 a background task forces the current segment to disk at that interval,
+// otherwise durability is left to the OS page cache.
+class MappedFileLogWriter implements LogWriter {
+    private final File directory;
+    private final String baseName;
+    private final int segmentSize;
+    private final long rollIntervalMillis;
+    private final ExecutorService segmentAllocator;
+    private final ScheduledExecutorService syncer;
+    private int nextIndex;
+    private CompletableFuture<Segment> nextSegment;
+    private volatile Segment current;
+    // guarded by this, lines written after close are dropped
+    private boolean closed;
+
+    private static final class Segment {
+        final File file;
+        final RandomAccessFile raf;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        // set when the segment becomes current, not when it is preallocated
+        long openedAtMillis;
+        private boolean sealed;
+
+        Segment(File file, int size) throws IOException {
+            this.file = file;
+            this.raf = new RandomAccessFile(file, "rw");
+            this.raf.setLength(size);
+            this.channel = raf.getChannel();
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        // the fsync task may still hold a segment that is being sealed after a roll
+        synchronized void force() {
+            if(!sealed) {
+                buffer.force();
+            }
+        }
+
+        // trims the unused tail so readers don't see padding, the buffer is not touched afterwards
+        synchronized void seal() throws IOException {
+            buffer.force();
+            channel.truncate(buffer.position());
+            raf.close();
+            sealed = true;
+        }
+    }
+
+    MappedFileLogWriter(File directory, String baseName, int segmentSize,
+                        long rollIntervalMillis, long fsyncIntervalMillis) {
+        if(!directory.isDirectory() && !directory.mkdirs()) {
+            throw new UncheckedIOException(new IOException("Can't create log directory " + directory));
+        }
+        this.directory = directory;
+        this.baseName = baseName;
+        this.segmentSize = segmentSize;
+        this.rollIntervalMillis = rollIntervalMillis;
+        this.nextIndex = firstFreeIndex();
+        this.segmentAllocator = Executors.newSingleThreadExecutor(daemon("log-segment-allocator"));
+        this.current = allocate(nextIndex++);
+        this.current.openedAtMillis = System.currentTimeMillis();
+        this.nextSegment = preallocate();
+        if(fsyncIntervalMillis > 0) {
+            this.syncer = Executors.newSingleThreadScheduledExecutor(daemon("log-segment-fsync"));
+            this.syncer.scheduleWithFixedDelay(() -> current.force(),
+                    fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.syncer = null;
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private int firstFreeIndex() {
+        int index = 0;
+        while(new File(directory, baseName + "-" + index + ".log").exists()) {
+            index++;
+        }
+        return index;
+    }
+
+    private Segment allocate(int index) {
+        try {
+            return new Segment(new File(directory, baseName + "-" + index + ".log"), segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private CompletableFuture<Segment> preallocate() {
+        int index = nextIndex++;
+        return CompletableFuture.supplyAsync(() -> allocate(index), segmentAllocator);
+    }
+
+    @Override
+    public void write(LogLevel logLevel, String time, String message) {
+        write(logLevel, (CharSequence) time, (CharSequence) message);
+    }
+
+    @Override
+    public synchronized void write(LogLevel logLevel, CharSequence time, CharSequence message) {
+        if(closed) return;
+        int length = Utf8.lineLength(logLevel, time, message);
+        Segment segment = current;
+        // a line longer than a whole segment is cut where the current one ends, a fresh segment wouldn't hold it either
+        if((segment.buffer.remaining() < length && (length <= segmentSize || !segment.buffer.hasRemaining()))
+                || (rollIntervalMillis > 0 && System.currentTimeMillis() - segment.openedAtMillis >= rollIntervalMillis)) {
+            segment = roll();
+        }
+        MappedByteBuffer buffer = segment.buffer;
+        if(buffer.remaining() < length) {
+            Utf8.putLine(buffer, logLevel, time, message, buffer.remaining() - 1);
+            return;
+        }
+        Utf8.putLine(buffer, logLevel, time, message);
+    }
+
+    // lines are in the page cache as soon as they are written, readers of the file already see them;
+    // going to disk per batch would cost an msync each time, that is what fsyncIntervalMillis is for
+    @Override
+    public void flush() {
+    }
+
+    private Segment roll() {
+        Segment old = current;
+        Segment fresh = nextSegment.join();
+        fresh.openedAtMillis = System.currentTimeMillis();
+        current = fresh;
+        nextSegment = preallocate();
+        segmentAllocator.execute(() -> {
+            try {
+                old.seal();
+            } catch (IOException e) {
+                System.err.println("Failed to seal log segment " + old.file + ": " + e.getMessage());
+            }
+        });
+        return fresh;
+    }
+
+    public synchronized void close() {
+        if(closed) return;
+        closed = true;
+        if(syncer != null) {
+            syncer.shutdownNow();
+        }
+        try {
+            current.seal();
+            Segment unused = nextSegment.join();
+            unused.raf.close();
+            if(!unused.file.delete()) {
+                System.err.println("Failed to delete unused log segment " + unused.file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            segmentAllocator.shutdown();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.example;
+
+// Fills "{}" placeholders of a pattern into a reused per-thread StringBuilder.
+// Usage: MessageFormatter.start(pattern).arg(a).arg(b).finish(), then release() once the message is written.
+// Primitive args are appended without boxing, so a call with only primitive args allocates nothing.
+final class MessageFormatter {
+    private static final ThreadLocal<MessageFormatter> BUFFERS = ThreadLocal.withInitial(MessageFormatter::new);
+    private static final int MAX_RETAINED_CAPACITY = 8192;
+
+    private final StringBuilder message;
+    private String pattern;
+    private int next;
+    private boolean inUse;
+
+    private MessageFormatter() {
+        this.message = new StringBuilder(256);
+    }
+
+    static MessageFormatter start(String pattern) {
+        MessageFormatter formatter = BUFFERS.get();
+        if(formatter.inUse) {
+            // an argument's toString() is logging, don't clobber the outer message; or a toString() threw
+            // before release(). Either way the new formatter becomes the thread's pooled one.
+            formatter = new MessageFormatter();
+            BUFFERS.set(formatter);
+        }
+        formatter.inUse = true;
+        formatter.pattern = pattern;
+        formatter.next = 0;
+        formatter.message.setLength(0);
+        return formatter;
+    }
+
+    // copies the pattern up to the next placeholder, false when there is none left for the argument
+    private boolean literal() {
+        if(next < 0) return false;
+        int placeholder = pattern.indexOf("{}", next);
+        if(placeholder < 0) {
+            message.append(pattern, next, pattern.length());
+            next = -1;
+            return false;
+        }
+        message.append(pattern, next, placeholder);
+        next = placeholder + 2;
+        return true;
+    }
+
+    MessageFormatter arg(long value) {
+        if(literal()) message.append(value);
+        return this;
+    }
+
+    MessageFormatter arg(double value) {
+        if(literal()) appendDouble(message, value);
+        return this;
+    }
+
+    MessageFormatter arg(boolean value) {
+        if(literal()) message.append(value);
+        return this;
+    }
+
+    MessageFormatter arg(Object value) {
+        if(literal()) {
+            if(value instanceof CharSequence text) {
+                message.append(text);
+            } else {
+                message.append(value);
+            }
+        }
+        return this;
+    }
+
+    // the returned builder is only valid until release()
+    CharSequence finish() {
+        if(next >= 0) {
+            message.append(pattern, next, pattern.length());
+            next = -1;
+        }
+        return message;
+    }
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    // Same text as StringBuilder.append(double), which allocates on every call.
+    // Values that are exactly a decimal with up to six fraction digits in Double.toString's plain notation
+    // range (0.001 <= |value| < 10^7) are written digit by digit, everything else falls back to append.
+    static void appendDouble(StringBuilder out, double value) {
+        double magnitude = Math.abs(value);
+        if(magnitude >= 1e-3 && magnitude < 1e7) {
+            for(int scale = 0; scale < POWERS_OF_TEN.length; scale++) {
+                long scaled = Math.round(magnitude * POWERS_OF_TEN[scale]);
+                // the division is correctly rounded, equality means value is the double nearest to scaled / 10^scale
+                if((double) scaled / POWERS_OF_TEN[scale] == magnitude) {
+                    if(value < 0) out.append('-');
+                    out.append(scaled / POWERS_OF_TEN[scale]).append('.');
+                    if(scale == 0) {
+                        out.append('0');
+                        return;
+                    }
+                    long fraction = scaled % POWERS_OF_TEN[scale];
+                    for(int digit = scale - 1; digit >= 0; digit--) {
+                        out.append((char) ('0' + fraction / POWERS_OF_TEN[digit] % 10));
+                    }
+                    return;
+                }
+            }
+        }
+        out.append(value);
+    }
+
+    void release() {
+        pattern = null;
+        if(message.capacity() > MAX_RETAINED_CAPACITY) {
+            // one huge message shouldn't pin a huge buffer per thread
+            message.setLength(0);
+            message.trimToSize();
+            message.ensureCapacity(256);
+        }
+        inUse = false;
+    }
+}
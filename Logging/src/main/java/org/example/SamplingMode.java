@@ -0,0 +1,8 @@
+package org.example;
+
+enum SamplingMode {
+    // the 1st, (n+1)th, (2n+1)th... occurrence
+    EVERY_NTH,
+    // the first n occurrences of every second
+    PER_SECOND
+}
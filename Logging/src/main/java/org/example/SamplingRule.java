@@ -0,0 +1,17 @@
+package org.example;
+
+record SamplingRule(SamplingMode mode, int n) {
+    SamplingRule {
+        if(n < 1) {
+            throw new IllegalArgumentException("Sampling rate must be positive");
+        }
+    }
+
+    static SamplingRule everyNth(int n) {
+        return new SamplingRule(SamplingMode.EVERY_NTH, n);
+    }
+
+    static SamplingRule perSecond(int n) {
+        return new SamplingRule(SamplingMode.PER_SECOND, n);
+    }
+}
@@ -0,0 +1,65 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+// Writes events through an EventEncoder to a stream. Plain text lines become events with only a message.
+class StructuredLogWriter implements LogWriter {
+    private final OutputStream out;
+    private final EventEncoder encoder;
+    private final LogEvent lineEvent;
+    private final TimestampFormatter timestampFormatter;
+    private ByteBuffer encoded;
+
+    StructuredLogWriter(OutputStream out, EventEncoder encoder) {
+        this.out = out;
+        this.encoder = encoder;
+        this.lineEvent = new LogEvent();
+        this.timestampFormatter = new TimestampFormatter();
+        this.encoded = ByteBuffer.allocate(1024);
+    }
+
+    @Override
+    public void write(LogLevel logLevel, String time, String message) {
+        write(logLevel, (CharSequence) time, (CharSequence) message);
+    }
+
+    @Override
+    public synchronized void write(LogLevel logLevel, CharSequence time, CharSequence message) {
+        lineEvent.reset(logLevel);
+        // plain lines only carry the formatted time, the encoders want epoch millis
+        lineEvent.epochMillis(timestampFormatter.parse(time));
+        lineEvent.message(message);
+        write(lineEvent);
+    }
+
+    @Override
+    public synchronized void write(LogEvent event) {
+        while(true) {
+            encoded.clear();
+            try {
+                encoder.encode(event, encoded);
+                break;
+            } catch (BufferOverflowException e) {
+                encoded = ByteBuffer.allocate(encoded.capacity() * 2);
+            }
+        }
+        try {
+            out.write(encoded.array(), 0, encoded.position());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.example;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+// ISO-8601 UTC timestamps with millisecond precision, e.g. 2026-10-19T15:26:55.982Z.
+// Everything up to the seconds is formatted once per second and cached, each call only appends the millis.
+final class TimestampFormatter {
+    private static final DateTimeFormatter SECONDS = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")
+            .withZone(ZoneOffset.UTC);
+
+    private record CachedSecond(long epochSecond, String prefix) {
+    }
+
+    private volatile CachedSecond cached = new CachedSecond(Long.MIN_VALUE, "");
+
+    void formatTo(long epochMillis, StringBuilder out) {
+        CachedSecond second = second(Math.floorDiv(epochMillis, 1000));
+        int millis = Math.floorMod(epochMillis, 1000);
+        out.append(second.prefix());
+        if(millis < 100) out.append('0');
+        if(millis < 10) out.append('0');
+        out.append(millis).append('Z');
+    }
+
+    // Epoch millis of a timestamp. One in the cached second only has its millis parsed,
+    // anything else, e.g. Instant.toString() output, goes through Instant.parse.
+    long parse(CharSequence time) {
+        CachedSecond second = cached;
+        int millis = millisIn(second.prefix(), time);
+        if(millis >= 0) {
+            return second.epochSecond() * 1000 + millis;
+        }
+        long epochMillis = Instant.parse(time).toEpochMilli();
+        second(Math.floorDiv(epochMillis, 1000));
+        return epochMillis;
+    }
+
+    // the millis of "<prefix>SSSZ", -1 when time doesn't have that shape
+    private static int millisIn(String prefix, CharSequence time) {
+        int length = prefix.length();
+        if(length == 0 || time.length() != length + 4 || time.charAt(length + 3) != 'Z') return -1;
+        for(int i = 0; i < length; i++) {
+            if(time.charAt(i) != prefix.charAt(i)) return -1;
+        }
+        int millis = 0;
+        for(int i = length; i < length + 3; i++) {
+            char c = time.charAt(i);
+            if(c < '0' || c > '9') return -1;
+            millis = millis * 10 + (c - '0');
+        }
+        return millis;
+    }
+
+    private CachedSecond second(long epochSecond) {
+        CachedSecond second = cached;
+        if(second.epochSecond() != epochSecond) {
+            second = new CachedSecond(epochSecond, SECONDS.format(Instant.ofEpochSecond(epochSecond)) + ".");
+            cached = second;
+        }
+        return second;
+    }
+}
@@ -0,0 +1,127 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+
+// UTF-8 encoding of CharSequences straight into a ByteBuffer, shared by the writers that produce bytes.
+final class Utf8 {
+    private static final byte[] SEPARATOR = " :: ".getBytes();
+
+    private Utf8() {
+    }
+
+    static int length(CharSequence text) {
+        int length = 0;
+        for(int i = 0; i < text.length(); i++) {
+            int width = width(text, i);
+            if(width == 4) i++;
+            length += width;
+        }
+        return length;
+    }
+
+    // writes at most maxBytes, never splitting a character
+    static void put(ByteBuffer buffer, CharSequence text, int maxBytes) {
+        int limit = Math.min(buffer.remaining(), maxBytes);
+        int written = 0;
+        for(int i = 0; i < text.length(); i++) {
+            int width = width(text, i);
+            if(written + width > limit) return;
+            i = putChar(buffer, text, i);
+            written += width;
+        }
+    }
+
+    // contents of a JSON string literal: quotes, backslashes and control characters escaped
+    static void putJson(ByteBuffer buffer, CharSequence text) {
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if(c == '"' || c == '\\') {
+                buffer.put((byte) '\\');
+                buffer.put((byte) c);
+            } else if(c < 0x20) {
+                buffer.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0');
+                buffer.put((byte) Character.forDigit(c >> 4, 16));
+                buffer.put((byte) Character.forDigit(c & 0xF, 16));
+            } else {
+                i = putChar(buffer, text, i);
+            }
+        }
+    }
+
+    // decimal digits of value without going through a String
+    static void putAscii(ByteBuffer buffer, long value) {
+        if(value == Long.MIN_VALUE) {
+            put(buffer, "-9223372036854775808", Integer.MAX_VALUE);
+            return;
+        }
+        if(value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int digits = 1;
+        for(long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        int end = buffer.position() + digits;
+        for(int index = end - 1; index >= buffer.position(); index--) {
+            buffer.put(index, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+    private static int width(CharSequence text, int i) {
+        char c = text.charAt(i);
+        if(c < 0x80) return 1;
+        if(c < 0x800) return 2;
+        if(Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) return 4;
+        return 3;
+    }
+
+    // encodes the character at i and returns the index of its last char, a surrogate pair spans two
+    private static int putChar(ByteBuffer buffer, CharSequence text, int i) {
+        char c = text.charAt(i);
+        if(c < 0x80) {
+            buffer.put((byte) c);
+        } else if(c < 0x800) {
+            buffer.put((byte) (0xC0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        } else if(Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+            int codePoint = Character.toCodePoint(c, text.charAt(++i));
+            buffer.put((byte) (0xF0 | (codePoint >> 18)));
+            buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+            buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+        } else {
+            buffer.put((byte) (0xE0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+        return i;
+    }
+
+    // "<time> <LEVEL> :: <message>\n"
+    static int lineLength(LogLevel logLevel, CharSequence time, CharSequence message) {
+        return length(time) + 1 + logLevel.name().length() + SEPARATOR.length + length(message) + 1;
+    }
+
+    static void putLine(ByteBuffer buffer, LogLevel logLevel, CharSequence time, CharSequence message) {
+        put(buffer, time, Integer.MAX_VALUE);
+        buffer.put((byte) ' ');
+        put(buffer, logLevel.name(), Integer.MAX_VALUE);
+        buffer.put(SEPARATOR);
+        put(buffer, message, Integer.MAX_VALUE);
+        buffer.put((byte) '\n');
+    }
+
+    // same line cut to maxBytes before the newline, for lines that don't fit a whole segment
+    static void putLine(ByteBuffer buffer, LogLevel logLevel, CharSequence time, CharSequence message, int maxBytes) {
+        int end = buffer.position() + maxBytes;
+        put(buffer, time, end - buffer.position());
+        put(buffer, " ", end - buffer.position());
+        put(buffer, logLevel.name(), end - buffer.position());
+        put(buffer, " :: ", end - buffer.position());
+        put(buffer, message, end - buffer.position());
+        buffer.put((byte) '\n');
+    }
+}
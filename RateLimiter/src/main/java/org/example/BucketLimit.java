@@ -0,0 +1,15 @@
+package org.example;
+
+record BucketLimit(int capacity, int refreshRate, int refillInMillis) {
+    BucketLimit {
+        if(capacity < 1 || capacity > TokenBucketStrategy.TOKEN_MASK) {
+            throw new IllegalArgumentException("Bucket capacity must be between 1 and " + TokenBucketStrategy.TOKEN_MASK);
+        }
+        if(refreshRate < 0) {
+            throw new IllegalArgumentException("Refresh rate can't be negative");
+        }
+        if(refillInMillis < 1) {
+            throw new IllegalArgumentException("Refill interval must be at least 1ms");
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+// Open addressing table of packed token bucket states, split into segments.
+// Per key it stores a key reference, the key hash and one long per stripe, no bucket objects and no locks.
+// Lookups and token CAS never block; only inserting a key or rebuilding a segment takes the segment monitor.
+// Keys are never removed in place: a rebuild freezes every state, copies the survivors into a fresh table
+// and publishes it, so a CAS racing with the rebuild either landed before the freeze (and was copied) or
+// fails on FROZEN and retries against the new table.
+class BucketTable {
+    static final long FROZEN = -1L;
+    private static final int MIN_SLOTS = 16;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final int stripes;
+    private final long idleMillis;
+    private final Function<String, BucketLimit> limits;
+
+    // maxKeys is split over the segments, the first maxKeys % segmentCount of them take one more, so together
+    // they hold at most maxKeys. A table with fewer keys than segments gets fewer segments, every segment
+    // needs room for one key.
+    BucketTable(int segmentCount, int stripes, long maxKeys, long idleMillis, Function<String, BucketLimit> limits) {
+        if(Integer.bitCount(segmentCount) != 1 || segmentCount > (1 << 15)) {
+            throw new IllegalArgumentException("Segment count must be a power of two up to 32768");
+        }
+        if(maxKeys < 1) {
+            throw new IllegalArgumentException("Max keys must be positive");
+        }
+        segmentCount = (int) Math.min(segmentCount, Long.highestOneBit(maxKeys));
+        this.segments = new Segment[segmentCount];
+        this.segmentMask = segmentCount - 1;
+        this.stripes = stripes;
+        this.idleMillis = idleMillis;
+        this.limits = limits;
+        for(int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment((int) Math.min(Integer.MAX_VALUE / 2,
+                    maxKeys / segmentCount + (i < maxKeys % segmentCount ? 1 : 0)));
+        }
+    }
+
+    // Takes `permits` tokens or none. With stripes a request may be served by several stripes,
+    // if they can't cover it together whatever was taken is handed back.
+    public boolean tryConsume(String key, long now, BucketLimit limit, int permits) {
+        int hash = spread(key.hashCode());
+        Segment segment = segmentFor(hash);
+        int first = stripes == 1 ? 0 : (int) (Thread.currentThread().threadId() % stripes);
+
+        while(true) {
+            Table table = segment.table;
+            int slot = table.find(key, hash);
+            if(slot < 0) {
+                segment.insert(key, hash, now, limit);
+                continue;
+            }
+            long remaining = permits;
+            boolean frozen = false;
+            for(int i = 0; i < stripes && remaining > 0; i++) {
+                long taken = take(table, slot, (first + i) % stripes, now, limit, remaining, stripes == 1);
+                if(taken < 0) {
+                    frozen = true;
+                    break;
+                }
+                remaining -= taken;
+            }
+            if(remaining == 0) {
+                return true;
+            }
+            if(remaining < permits) {
+                refund(key, now, limit, (int) (permits - remaining));
+            }
+            if(!frozen) {
+                return false;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    // Hands tokens back, e.g. when a batch fails part way. Capped at capacity like a refill; if the key has
+    // been evicted in the meantime it is already back to a full bucket and there is nothing to return.
+    public void refund(String key, long now, BucketLimit limit, int permits) {
+        int hash = spread(key.hashCode());
+        Segment segment = segmentFor(hash);
+        long remaining = permits;
+        while(remaining > 0) {
+            Table table = segment.table;
+            int slot = table.find(key, hash);
+            if(slot < 0) return;
+            boolean frozen = false;
+            for(int stripe = 0; stripe < stripes && remaining > 0; stripe++) {
+                int index = slot * stripes + stripe;
+                int stripeCapacity = TokenBucketStrategy.share(limit.capacity(), stripe, stripes);
+                int stripeRefill = TokenBucketStrategy.share(limit.refreshRate(), stripe, stripes);
+                while(true) {
+                    long state = table.states.get(index);
+                    if(state == FROZEN) {
+                        frozen = true;
+                        break;
+                    }
+                    long current = TokenBucketStrategy.refilled(state, now, stripeCapacity, stripeRefill, limit.refillInMillis());
+                    long tokens = TokenBucketStrategy.tokens(current);
+                    long returned = Math.min(remaining, stripeCapacity - tokens);
+                    if(table.states.compareAndSet(index, state,
+                            TokenBucketStrategy.pack(TokenBucketStrategy.millis(current), tokens + returned))) {
+                        remaining -= returned;
+                        break;
+                    }
+                }
+                if(frozen) break;
+            }
+            if(!frozen) return;
+            Thread.onSpinWait();
+        }
+    }
+
+    // Returns the tokens taken from one stripe, -1 if the segment is being rebuilt.
+    private long take(Table table, int slot, int stripe, long now, BucketLimit limit, long wanted, boolean allOrNothing) {
+        int index = slot * stripes + stripe;
+        int stripeCapacity = TokenBucketStrategy.share(limit.capacity(), stripe, stripes);
+        int stripeRefill = TokenBucketStrategy.share(limit.refreshRate(), stripe, stripes);
+        while(true) {
+            long state = table.states.get(index);
+            if(state == FROZEN) return -1;
+            long current = TokenBucketStrategy.refilled(state, now, stripeCapacity, stripeRefill, limit.refillInMillis());
+            long available = TokenBucketStrategy.tokens(current);
+            long taken = allOrNothing ? (available >= wanted ? wanted : 0) : Math.min(available, wanted);
+            if(taken == 0) {
+                if(current != state) table.states.compareAndSet(index, state, current);
+                return 0;
+            }
+            if(table.states.compareAndSet(index, state, current - taken)) {
+                return taken;
+            }
+        }
+    }
+
+    // How long until the key's next refill is due, used to time wake ups of waiting callers.
+    // Striped buckets are timed by their first stripe.
+    public long millisUntilRefill(String key, long now, BucketLimit limit) {
+        int hash = spread(key.hashCode());
+        Table table = segmentFor(hash).table;
+        int slot = table.find(key, hash);
+        if(slot < 0) return 1;
+        long state = table.states.get(slot * stripes);
+        if(state == FROZEN) return 1;
+        return Math.max(1, TokenBucketStrategy.millis(state) + limit.refillInMillis() - now);
+    }
+
+    private Segment segmentFor(int hash) {
+        // segment from the high bits, slot from the low bits, so keys in one segment don't cluster
+        return segments[(hash >>> 16) & segmentMask];
+    }
+
+    // Drops every idle full bucket now instead of waiting for a segment to fill up.
+    public void evictIdle(long now) {
+        for(Segment segment: segments) {
+            synchronized (segment) {
+                segment.rebuild(now, false);
+            }
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for(Segment segment: segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    // Bytes held by the table itself per tracked key (reference + hash + states, including free slots).
+    // The key strings are shared with the caller and not counted.
+    public double bytesPerKey() {
+        long bytes = 0;
+        long size = 0;
+        for(Segment segment: segments) {
+            synchronized (segment) {
+                bytes += (long) segment.table.slots() * (Integer.BYTES + Integer.BYTES + (long) Long.BYTES * stripes);
+                size += segment.size;
+            }
+        }
+        return size == 0 ? 0 : (double) bytes / size;
+    }
+
+    // the multiply carries the low bits of short keys' String hashes up into the segment bits
+    private static int spread(int hash) {
+        hash *= 0x9e3779b9;
+        return (hash ^ (hash >>> 16)) & 0x7fffffff;
+    }
+
+    private final class Segment {
+        private final int maxKeys;
+        private volatile Table table;
+        private int size;
+
+        Segment(int maxKeys) {
+            this.maxKeys = maxKeys;
+            this.table = new Table(MIN_SLOTS, stripes);
+        }
+
+        synchronized void insert(String key, int hash, long now, BucketLimit limit) {
+            if(table.find(key, hash) >= 0) return;
+            if(size >= maxKeys || (size + 1) * 4L > table.slots() * 3L) {
+                rebuild(now, true);
+            }
+            Table current = table;
+            int slot = hash & current.mask;
+            while(current.keys.get(slot) != null) {
+                slot = (slot + 1) & current.mask;
+            }
+            for(int stripe = 0; stripe < stripes; stripe++) {
+                current.states.set(slot * stripes + stripe,
+                        TokenBucketStrategy.pack(now, TokenBucketStrategy.share(limit.capacity(), stripe, stripes)));
+            }
+            current.hashes[slot] = hash;
+            current.keys.set(slot, key);
+            size++;
+        }
+
+        // Called with the monitor held. Full buckets idle for idleMillis are dropped, they are
+        // indistinguishable from a fresh bucket. If the segment is still at its key limit and room is
+        // needed, the buckets with the oldest refill time go next (approximate LRU) and lose their state.
+        void rebuild(long now, boolean needRoom) {
+            Table old = table;
+            int[] live = new int[size];
+            long[] frozen = new long[size * stripes];
+            int liveCount = 0;
+
+            for(int slot = 0; slot < old.slots(); slot++) {
+                String key = old.keys.get(slot);
+                if(key == null) continue;
+                BucketLimit limit = limits.apply(key);
+                boolean idle = true;
+                for(int stripe = 0; stripe < stripes; stripe++) {
+                    long state = old.states.getAndSet(slot * stripes + stripe, FROZEN);
+                    frozen[liveCount * stripes + stripe] = state;
+                    int stripeCapacity = TokenBucketStrategy.share(limit.capacity(), stripe, stripes);
+                    long current = TokenBucketStrategy.refilled(state, now, stripeCapacity,
+                            TokenBucketStrategy.share(limit.refreshRate(), stripe, stripes), limit.refillInMillis());
+                    idle &= TokenBucketStrategy.tokens(current) == stripeCapacity
+                            && now - TokenBucketStrategy.millis(state) >= idleMillis;
+                }
+                if(!idle) {
+                    live[liveCount++] = slot;
+                }
+            }
+
+            int keep = liveCount;
+            Integer[] order = null;
+            if(needRoom && liveCount >= maxKeys) {
+                keep = maxKeys - 1;
+                order = new Integer[liveCount];
+                for(int i = 0; i < liveCount; i++) order[i] = i;
+                final long[] states = frozen;
+                Arrays.sort(order, (a, b) -> Long.compare(
+                        TokenBucketStrategy.millis(states[b * stripes]), TokenBucketStrategy.millis(states[a * stripes])));
+            }
+
+            int slots = MIN_SLOTS;
+            while((keep + 1) * 4L > slots * 3L) slots <<= 1;
+            Table fresh = new Table(slots, stripes);
+            for(int i = 0; i < keep; i++) {
+                int survivor = order == null ? i : order[i];
+                int oldSlot = live[survivor];
+                int hash = old.hashes[oldSlot];
+                int slot = hash & fresh.mask;
+                while(fresh.keys.get(slot) != null) {
+                    slot = (slot + 1) & fresh.mask;
+                }
+                for(int stripe = 0; stripe < stripes; stripe++) {
+                    fresh.states.set(slot * stripes + stripe, frozen[survivor * stripes + stripe]);
+                }
+                fresh.hashes[slot] = hash;
+                fresh.keys.set(slot, old.keys.get(oldSlot));
+            }
+            size = keep;
+            table = fresh;
+        }
+    }
+
+    private static final class Table {
+        final AtomicReferenceArray<String> keys;
+        // written before the key is published, so a reader that sees the key sees its hash
+        final int[] hashes;
+        final AtomicLongArray states;
+        final int mask;
+
+        Table(int slots, int stripes) {
+            this.keys = new AtomicReferenceArray<>(slots);
+            this.hashes = new int[slots];
+            this.states = new AtomicLongArray(slots * stripes);
+            this.mask = slots - 1;
+        }
+
+        int slots() {
+            return mask + 1;
+        }
+
+        int find(String key, int hash) {
+            int slot = hash & mask;
+            while(true) {
+                String current = keys.get(slot);
+                if(current == null) return -1;
+                if(hashes[slot] == hash && current.equals(key)) return slot;
+                slot = (slot + 1) & mask;
+            }
+        }
+    }
+}
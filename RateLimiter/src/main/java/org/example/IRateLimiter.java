@@ -0,0 +1,10 @@
+package org.example;
+
+import java.util.Map;
+
+interface IRateLimiter {
+    boolean giveAccess(String key);
+    boolean tryAcquire(String key, int permits);
+    void shutDown();
+    void updateConfig(Map<String, Object> config);
+}
@@ -0,0 +1,59 @@
+package org.example;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+class InMemoryQuotaStore implements QuotaStore {
+    private final BucketLimit limit;
+    private final long startNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, Long> buckets;
+    private final LongAdder calls;
+
+    InMemoryQuotaStore(BucketLimit limit) {
+        this(limit, System::nanoTime);
+    }
+
+    InMemoryQuotaStore(BucketLimit limit, LongSupplier nanoClock) {
+        this.limit = limit;
+        this.nanoClock = nanoClock;
+        this.startNanos = nanoClock.getAsLong();
+        this.buckets = new ConcurrentHashMap<>();
+        this.calls = new LongAdder();
+    }
+
+    private long nowMillis() {
+        return (nanoClock.getAsLong() - startNanos) / 1_000_000;
+    }
+
+    @Override
+    public long lease(String key, long wanted) {
+        calls.increment();
+        long now = nowMillis();
+        long[] granted = new long[1];
+        buckets.compute(key, (k, state) -> {
+            long current = TokenBucketStrategy.refilled(state == null ? TokenBucketStrategy.pack(now, limit.capacity()) : state,
+                    now, limit.capacity(), limit.refreshRate(), limit.refillInMillis());
+            granted[0] = Math.min(wanted, TokenBucketStrategy.tokens(current));
+            return current - granted[0];
+        });
+        return granted[0];
+    }
+
+    @Override
+    public void release(String key, long tokens) {
+        calls.increment();
+        long now = nowMillis();
+        buckets.computeIfPresent(key, (k, state) -> {
+            long current = TokenBucketStrategy.refilled(state, now, limit.capacity(), limit.refreshRate(), limit.refillInMillis());
+            long returned = Math.min(limit.capacity(), TokenBucketStrategy.tokens(current) + tokens);
+            return TokenBucketStrategy.pack(TokenBucketStrategy.millis(current), returned);
+        });
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+}
@@ -0,0 +1,145 @@
+package org.example;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Enforces a quota shared by all nodes. Each node leases a chunk of tokens per key from the QuotaStore and
+// serves requests from it locally, the store is only called when a lease runs dry or expires.
+// leaseSize trades accuracy for store round trips: at most leaseSize tokens per node can sit unused
+// in a lease while other nodes are being rejected. Leases expire after leaseTtlMillis and their leftovers
+// go back to the store, either on the key's next request or from a sweep every leaseTtlMillis that also
+// forgets keys nobody asks for anymore; returnLeases() and shutDown() return everything still held.
+class LeasingRateLimiter implements IRateLimiter {
+    private final QuotaStore quotaStore;
+    private final int leaseSize;
+    private final long leaseTtlNanos;
+    private final long emptyBackoffNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, Lease> leases;
+    private final ScheduledExecutorService sweeper;
+
+    LeasingRateLimiter(QuotaStore quotaStore, int leaseSize, long leaseTtlMillis, long emptyBackoffMillis) {
+        this(quotaStore, leaseSize, leaseTtlMillis, emptyBackoffMillis, System::nanoTime);
+    }
+
+    LeasingRateLimiter(QuotaStore quotaStore, int leaseSize, long leaseTtlMillis, long emptyBackoffMillis,
+                       LongSupplier nanoClock) {
+        if(leaseSize < 1) {
+            throw new IllegalArgumentException("Lease size must be positive");
+        }
+        this.quotaStore = quotaStore;
+        this.leaseSize = leaseSize;
+        this.leaseTtlNanos = leaseTtlMillis * 1_000_000;
+        this.emptyBackoffNanos = emptyBackoffMillis * 1_000_000;
+        this.nanoClock = nanoClock;
+        this.leases = new ConcurrentHashMap<>();
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lease-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sweepMillis = Math.max(1, leaseTtlMillis);
+        sweeper.scheduleWithFixedDelay(this::sweepExpired, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static class Lease {
+        private final AtomicLong tokens;
+        private volatile long expiresAtNanos;
+        // set when the store had nothing to give, so a drained key doesn't turn into one store call per request
+        private volatile long emptyUntilNanos;
+        // removed from the map by a sweep, callers still holding it look the key up again
+        private boolean retired;
+
+        Lease(long now) {
+            this.tokens = new AtomicLong();
+            this.expiresAtNanos = now;
+            this.emptyUntilNanos = now;
+        }
+    }
+
+    @Override
+    public boolean giveAccess(String key) {
+        return tryAcquire(key, 1);
+    }
+
+    @Override
+    public boolean tryAcquire(String key, int permits) {
+        if(key == null || key.isEmpty() || permits < 1) return false;
+        long now = nanoClock.getAsLong();
+        Lease lease = leases.computeIfAbsent(key, k -> new Lease(now));
+
+        while(true) {
+            long tokens = lease.tokens.get();
+            if(tokens >= permits && now - lease.expiresAtNanos < 0) {
+                if(lease.tokens.compareAndSet(tokens, tokens - permits)) return true;
+                continue;
+            }
+            if(now - lease.emptyUntilNanos < 0) return false;
+
+            synchronized (lease) {
+                if(lease.retired) {
+                    lease = leases.computeIfAbsent(key, k -> new Lease(now));
+                    continue;
+                }
+                if(lease.tokens.get() >= permits && now - lease.expiresAtNanos < 0) continue;
+                if(now - lease.expiresAtNanos >= 0) {
+                    long leftover = lease.tokens.getAndSet(0);
+                    if(leftover > 0) quotaStore.release(key, leftover);
+                }
+                long granted = quotaStore.lease(key, Math.max(leaseSize, permits) - lease.tokens.get());
+                lease.tokens.addAndGet(granted);
+                lease.expiresAtNanos = now + leaseTtlNanos;
+                if(lease.tokens.get() < permits) {
+                    lease.emptyUntilNanos = now + emptyBackoffNanos;
+                    return false;
+                }
+            }
+        }
+    }
+
+    // Hands the leftovers of expired leases back and drops their keys. A key still backing off from an
+    // empty store is kept until the backoff is over, so it doesn't go straight back to the store.
+    public void sweepExpired() {
+        long now = nanoClock.getAsLong();
+        leases.forEach((key, lease) -> {
+            if(now - lease.expiresAtNanos < 0 || now - lease.emptyUntilNanos < 0) return;
+            synchronized (lease) {
+                if(now - lease.expiresAtNanos < 0) return;
+                long leftover = lease.tokens.getAndSet(0);
+                if(leftover > 0) quotaStore.release(key, leftover);
+                lease.retired = true;
+                leases.remove(key, lease);
+            }
+        });
+    }
+
+    public int getLeasedKeys() {
+        return leases.size();
+    }
+
+    public void returnLeases() {
+        leases.forEach((key, lease) -> {
+            synchronized (lease) {
+                long leftover = lease.tokens.getAndSet(0);
+                if(leftover > 0) quotaStore.release(key, leftover);
+                lease.expiresAtNanos = nanoClock.getAsLong();
+            }
+        });
+    }
+
+    @Override
+    public void shutDown() {
+        sweeper.shutdownNow();
+        returnLeases();
+    }
+
+    @Override
+    public void updateConfig(Map<String, Object> config) {
+        // limits live in the quota store
+    }
+}
@@ -0,0 +1,44 @@
+package org.example;
+
+import java.util.Map;
+
+// Immutable snapshot of every limit, updateConfig builds a new one and publishes it with one volatile write.
+// Keys may carry a tier as a prefix, "premium:raj" is looked up as key "premium:raj", then tier "premium".
+final class LimitConfig {
+    private final BucketLimit defaultLimit;
+    private final Map<String, BucketLimit> tierLimits;
+    private final Map<String, BucketLimit> keyLimits;
+
+    LimitConfig(BucketLimit defaultLimit, Map<String, BucketLimit> tierLimits, Map<String, BucketLimit> keyLimits) {
+        this.defaultLimit = defaultLimit;
+        this.tierLimits = Map.copyOf(tierLimits);
+        this.keyLimits = Map.copyOf(keyLimits);
+    }
+
+    public BucketLimit getDefaultLimit() {
+        return defaultLimit;
+    }
+
+    public Map<String, BucketLimit> getTierLimits() {
+        return tierLimits;
+    }
+
+    public Map<String, BucketLimit> getKeyLimits() {
+        return keyLimits;
+    }
+
+    public BucketLimit limitFor(String key) {
+        if(!keyLimits.isEmpty()) {
+            BucketLimit limit = keyLimits.get(key);
+            if(limit != null) return limit;
+        }
+        if(!tierLimits.isEmpty()) {
+            int separator = key.indexOf(':');
+            if(separator > 0) {
+                BucketLimit limit = tierLimits.get(key.substring(0, separator));
+                if(limit != null) return limit;
+            }
+        }
+        return defaultLimit;
+    }
+}
@@ -1,99 +1,49 @@
 package org.example;
 
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
-
-interface IRateLimiter {
-    boolean giveAccess(String key);
-    void shutDown();
-    void updateConfig(Map<String, Object> config);
-}
-
-class TokenBucketStrategy implements IRateLimiter {
-    private final int bucketCapacity;
-    private final int refreshRate;
-    private final Bucket globalBucket;
-    private final Map<String, Bucket> buckets;
-    private final int refillInMillis;
-    private final ScheduledExecutorService service;
-
-    TokenBucketStrategy(int bucketCapacity,
-                        int refreshRate,
-                        int refillInMillis) {
-        this.bucketCapacity = bucketCapacity;
-        this.refreshRate = refreshRate;
-        this.globalBucket = new Bucket();
-        this.buckets = new ConcurrentHashMap<>();
-        this.refillInMillis = refillInMillis;
-        service = Executors.newScheduledThreadPool(10);
-
-        this.startRefillTask();
-    }
-
-    private void startRefillTask() {
-        service.scheduleAtFixedRate(() -> {
-            this.globalBucket.refill();
-            buckets.forEach((key, bucket) -> {
-                bucket.refill();
-            });
-        }, 0, this.refillInMillis, TimeUnit.MICROSECONDS);
+import java.util.function.Function;
+
+// Picks the strategy for a request from the class of its key, e.g. "free" and "premium" api keys
+// can be limited by different algorithms side by side.
+class KeyClassRateLimiter implements IRateLimiter {
+    private final Function<String, String> keyClassifier;
+    private final Map<String, IRateLimiter> strategies;
+    private final IRateLimiter defaultStrategy;
+
+    KeyClassRateLimiter(Function<String, String> keyClassifier,
+                        Map<String, IRateLimiter> strategies,
+                        IRateLimiter defaultStrategy) {
+        this.keyClassifier = keyClassifier;
+        this.strategies = Map.copyOf(strategies);
+        this.defaultStrategy = defaultStrategy;
     }
 
-
-    private class Bucket {
-        private int token;
-        private final ReentrantLock lock;
-
-        Bucket() {
-            this.token = bucketCapacity;
-            lock = new ReentrantLock();
-        }
-
-        public boolean tryConsuming() {
-            lock.lock();
-            try {
-                if(token > 0) {
-                    token --;
-                    return true;
-                }
-                return false;
-            } finally {
-                lock.unlock();
-            }
-        }
-
-        public void refill() {
-            lock.lock();
-            try {
-                token = Math.min(bucketCapacity, token + refreshRate);
-            } finally {
-                lock.unlock();
-            }
-        }
+    private IRateLimiter strategyFor(String key) {
+        return strategies.getOrDefault(keyClassifier.apply(key), defaultStrategy);
     }
 
     @Override
     public boolean giveAccess(String key) {
         if(key == null || key.isEmpty()) return false;
-        Bucket currentUserBucket = this.buckets.computeIfAbsent(key, (k) -> new Bucket());
+        return strategyFor(key).giveAccess(key);
+    }
 
-        boolean gotToken = currentUserBucket.tryConsuming();
-        // layer to block user or any other strategy
-        return gotToken;
+    @Override
+    public boolean tryAcquire(String key, int permits) {
+        if(key == null || key.isEmpty()) return false;
+        return strategyFor(key).tryAcquire(key, permits);
     }
 
     @Override
     public void shutDown() {
-        this.service.shutdown();
+        strategies.values().forEach(IRateLimiter::shutDown);
+        defaultStrategy.shutDown();
     }
 
     @Override
     public void updateConfig(Map<String, Object> config) {
-        // write logic to change config;
+        strategies.values().forEach(strategy -> strategy.updateConfig(config));
+        defaultStrategy.updateConfig(config);
     }
 }
 
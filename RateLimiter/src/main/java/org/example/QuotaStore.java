@@ -0,0 +1,9 @@
+package org.example;
+
+// Shared quota every gateway node leases from, e.g. backed by redis in production.
+interface QuotaStore {
+    // grants up to `wanted` tokens of the key's shared bucket, 0 when it is empty
+    long lease(String key, long wanted);
+    // returns unused leased tokens to the shared bucket
+    void release(String key, long tokens);
+}
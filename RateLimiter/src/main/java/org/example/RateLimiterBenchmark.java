@@ -0,0 +1,457 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+// The original lock-per-bucket limiter, kept as the baseline for the benchmark.
+class LockBasedTokenBucketStrategy implements IRateLimiter {
+    private final int bucketCapacity;
+    private final int refreshRate;
+    private final Bucket globalBucket;
+    private final Map<String, Bucket> buckets;
+    private final int refillInMillis;
+    private final ScheduledExecutorService service;
+
+    LockBasedTokenBucketStrategy(int bucketCapacity,
+                                 int refreshRate,
+                                 int refillInMillis) {
+        this.bucketCapacity = bucketCapacity;
+        this.refreshRate = refreshRate;
+        this.globalBucket = new Bucket();
+        this.buckets = new ConcurrentHashMap<>();
+        this.refillInMillis = refillInMillis;
+        service = Executors.newScheduledThreadPool(10);
+
+        this.startRefillTask();
+    }
+
+    private void startRefillTask() {
+        service.scheduleAtFixedRate(() -> {
+            this.globalBucket.refill();
+            buckets.forEach((key, bucket) -> {
+                bucket.refill();
+            });
+        }, 0, this.refillInMillis, TimeUnit.MICROSECONDS);
+    }
+
+
+    private class Bucket {
+        private int token;
+        private final ReentrantLock lock;
+
+        Bucket() {
+            this.token = bucketCapacity;
+            lock = new ReentrantLock();
+        }
+
+        public boolean tryConsuming(int permits) {
+            lock.lock();
+            try {
+                if(token >= permits) {
+                    token -= permits;
+                    return true;
+                }
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void refill() {
+            lock.lock();
+            try {
+                token = Math.min(bucketCapacity, token + refreshRate);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public boolean giveAccess(String key) {
+        return tryAcquire(key, 1);
+    }
+
+    // not in the original, which only handed out one token at a time
+    @Override
+    public boolean tryAcquire(String key, int permits) {
+        if(key == null || key.isEmpty()) return false;
+        Bucket currentUserBucket = this.buckets.computeIfAbsent(key, (k) -> new Bucket());
+
+        boolean gotToken = currentUserBucket.tryConsuming(permits);
+        // layer to block user or any other strategy
+        return gotToken;
+    }
+
+    @Override
+    public void shutDown() {
+        this.service.shutdown();
+    }
+
+    @Override
+    public void updateConfig(Map<String, Object> config) {
+        // write logic to change config;
+    }
+}
+
+// Plain main() harness, run with: java -Xmx3g -cp target/classes org.example.RateLimiterBenchmark [threads|keys|strategies|reload|batch|leasing|async]
+public class RateLimiterBenchmark {
+    private static final int CAPACITY = (int) TokenBucketStrategy.TOKEN_MASK;
+    private static final long WARMUP_MILLIS = 500;
+    private static final long MEASURE_MILLIS = 1000;
+
+    public static void main(String[] args) throws InterruptedException {
+        String mode = args.length > 0 ? args[0] : "all";
+        if(mode.equals("all") || mode.equals("threads")) {
+            threadScaling();
+        }
+        if(mode.equals("all") || mode.equals("keys")) {
+            keySpaceScaling();
+        }
+        if(mode.equals("all") || mode.equals("strategies")) {
+            strategyComparison();
+        }
+        if(mode.equals("all") || mode.equals("reload")) {
+            configReload();
+        }
+        if(mode.equals("all") || mode.equals("batch")) {
+            fanOutBatch();
+        }
+        if(mode.equals("all") || mode.equals("leasing")) {
+            leasing();
+        }
+        if(mode.equals("all") || mode.equals("async")) {
+            asyncBurst();
+        }
+    }
+
+    private static void threadScaling() throws InterruptedException {
+        int[] threadCounts = {1, 2, 4, 8, 16, 32, 64};
+
+        System.out.println("threads | lock-based ops/s | cas ops/s | cas striped(8) ops/s");
+        for(int threads: threadCounts) {
+            IRateLimiter locked = new LockBasedTokenBucketStrategy(CAPACITY, CAPACITY, 1);
+            IRateLimiter cas = new TokenBucketStrategy(CAPACITY, CAPACITY, 1000);
+            IRateLimiter striped = new TokenBucketStrategy(CAPACITY, CAPACITY, 1000, 8);
+
+            long lockedOps = measure(locked, threads);
+            long casOps = measure(cas, threads);
+            long stripedOps = measure(striped, threads);
+            System.out.printf("%7d | %16d | %9d | %20d%n", threads, lockedOps, casOps, stripedOps);
+
+            locked.shutDown();
+            cas.shutDown();
+            striped.shutDown();
+        }
+    }
+
+    // Single caller walking a key space of growing size. With lazy refill the per-request cost should stay
+    // flat, the sweeping baseline pays for every tracked key on each tick on top of that.
+    private static void keySpaceScaling() {
+        int[] keyCounts = {1_000, 100_000, 1_000_000, 10_000_000};
+        String[] keys = new String[keyCounts[keyCounts.length - 1]];
+        for(int i = 0; i < keys.length; i++) {
+            keys[i] = "user-" + i;
+        }
+
+        System.out.println("keys | lock-based sweep ns/op | lazy refill ns/op | table bytes/key");
+        for(int keyCount: keyCounts) {
+            IRateLimiter locked = new LockBasedTokenBucketStrategy(10, 10, 1);
+            long lockedNanos = nanosPerOp(locked, keys, keyCount);
+            locked.shutDown();
+            locked = null;
+            System.gc();
+
+            TokenBucketStrategy lazy = new TokenBucketStrategy(10, 10, 1);
+            long lazyNanos = nanosPerOp(lazy, keys, keyCount);
+            double bytesPerKey = lazy.bytesPerKey();
+            lazy.shutDown();
+            lazy = null;
+            System.gc();
+
+            System.out.printf("%8d | %22d | %17d | %15.1f%n", keyCount, lockedNanos, lazyNanos, bytesPerKey);
+        }
+        randomKeyAttack(keys);
+    }
+
+    // Every request carries a never seen before key. With a key limit the table stays bounded
+    // and the heap used by the limiter stops growing.
+    private static void randomKeyAttack(String[] keys) {
+        long maxKeys = 100_000;
+        for(String name: new String[]{"token bucket", "window counter", "window log"}) {
+            IRateLimiter bounded = switch (name) {
+                case "token bucket" -> new TokenBucketStrategy(10, 10, 1, 1, maxKeys, 0);
+                case "window counter" -> new SlidingWindowCounterStrategy(10, 1, maxKeys);
+                default -> new SlidingWindowLogStrategy(10, 1, maxKeys);
+            };
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            long before = runtime.totalMemory() - runtime.freeMemory();
+            long start = System.nanoTime();
+            for(String key: keys) {
+                bounded.giveAccess(key);
+            }
+            long nanos = (System.nanoTime() - start) / keys.length;
+            System.gc();
+            long after = runtime.totalMemory() - runtime.freeMemory();
+            long tracked = bounded instanceof TokenBucketStrategy tokenBucket ? tokenBucket.trackedKeys()
+                    : bounded instanceof SlidingWindowCounterStrategy counter ? counter.trackedKeys()
+                    : ((SlidingWindowLogStrategy) bounded).trackedKeys();
+            System.out.printf("random key attack (%s): %d requests, %d keys tracked (limit %d), %d ns/op, " +
+                            "heap delta %d KB%n",
+                    name, keys.length, tracked, maxKeys, nanos, (after - before) / 1024);
+            bounded.shutDown();
+        }
+    }
+
+    private static long nanosPerOp(IRateLimiter rateLimiter, String[] keys, int keyCount) {
+        for(int i = 0; i < keyCount; i++) {
+            rateLimiter.giveAccess(keys[i]);
+        }
+        int ops = Math.max(keyCount, 5_000_000);
+        // stride through the keys so consecutive calls don't hit the same cache lines
+        long index = 0;
+        long start = System.nanoTime();
+        for(int i = 0; i < ops; i++) {
+            rateLimiter.giveAccess(keys[(int) index]);
+            index = (index + 7_919) % keyCount;
+        }
+        return (System.nanoTime() - start) / ops;
+    }
+
+    // 100 requests per second allowed. Accuracy runs on a fake clock: a client that shows up once, waits
+    // until just before a window edge and bursts on both sides of it, then a steady overload. Reported is the most requests
+    // admitted inside any real one second interval, an exact limiter never exceeds 100.
+    private static void strategyComparison() {
+        int limit = 100;
+        long windowMillis = 1000;
+        System.out.println("strategy | max admitted in any 1s (edge burst) | max admitted in any 1s (overload) | ns/op | bytes/key");
+        for(String name: new String[]{"token bucket", "window counter", "window log"}) {
+            long[] fakeNanos = new long[1];
+            long edgeBurst = maxAdmittedInWindow(strategy(name, limit, windowMillis, () -> fakeNanos[0]),
+                    fakeNanos, windowMillis, true);
+            fakeNanos[0] = 0;
+            long overload = maxAdmittedInWindow(strategy(name, limit, windowMillis, () -> fakeNanos[0]),
+                    fakeNanos, windowMillis, false);
+
+            IRateLimiter real = strategy(name, limit, windowMillis, System::nanoTime);
+            String[] keys = new String[100_000];
+            for(int i = 0; i < keys.length; i++) {
+                keys[i] = "user-" + i;
+            }
+            long nanos = nanosPerOp(real, keys, keys.length);
+            double bytesPerKey = real instanceof TokenBucketStrategy tokenBucket ? tokenBucket.bytesPerKey()
+                    : real instanceof SlidingWindowCounterStrategy counter ? counter.bytesPerKey()
+                    : ((SlidingWindowLogStrategy) real).bytesPerKey();
+            System.out.printf("%-14s | %35d | %33d | %5d | %9.1f%n", name, edgeBurst, overload, nanos, bytesPerKey);
+        }
+    }
+
+    private static IRateLimiter strategy(String name, int limit, long windowMillis, LongSupplier clock) {
+        return switch (name) {
+            case "token bucket" -> new TokenBucketStrategy(limit, limit, (int) windowMillis, 1, Long.MAX_VALUE, 0, clock);
+            case "window counter" -> new SlidingWindowCounterStrategy(limit, windowMillis, Long.MAX_VALUE, clock);
+            default -> new SlidingWindowLogStrategy(limit, windowMillis, Long.MAX_VALUE, clock);
+        };
+    }
+
+    private static long maxAdmittedInWindow(IRateLimiter rateLimiter, long[] fakeNanos, long windowMillis, boolean edgeBurst) {
+        int millis = 5_000;
+        long[] admittedAt = new long[millis];
+        for(int ms = 0; ms < millis; ms++) {
+            fakeNanos[0] = ms * 1_000_000L;
+            int requests = edgeBurst
+                    ? (ms == 0 ? 1 : ms % windowMillis == windowMillis - 1 || ms % windowMillis == 0 ? 150 : 0)
+                    : 1 + ms % 3;
+            for(int r = 0; r < requests; r++) {
+                if(rateLimiter.giveAccess("client")) admittedAt[ms]++;
+            }
+        }
+        long max = 0;
+        long inWindow = 0;
+        for(int ms = 0; ms < millis; ms++) {
+            inWindow += admittedAt[ms];
+            if(ms >= windowMillis) inWindow -= admittedAt[ms - (int) windowMillis];
+            max = Math.max(max, inWindow);
+        }
+        return max;
+    }
+
+    // Callers keep hitting giveAccess while limits are swapped as fast as possible. The slowest call with
+    // and without reloads running should be in the same range, callers never wait for an update.
+    private static void configReload() throws InterruptedException {
+        TokenBucketStrategy rateLimiter = new TokenBucketStrategy(1_000, 1_000, 1);
+        System.out.println("reloads | slowest giveAccess us | calls");
+        for(boolean reload: new boolean[]{false, true}) {
+            LongAdder calls = new LongAdder();
+            long[] slowest = new long[4];
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MEASURE_MILLIS);
+            CountDownLatch done = new CountDownLatch(slowest.length);
+            for(int t = 0; t < slowest.length; t++) {
+                int thread = t;
+                new Thread(() -> {
+                    long count = 0;
+                    while(System.nanoTime() < end) {
+                        long start = System.nanoTime();
+                        rateLimiter.giveAccess((count % 2 == 0 ? "premium:" : "free:") + (count % 1_000));
+                        slowest[thread] = Math.max(slowest[thread], System.nanoTime() - start);
+                        count++;
+                    }
+                    calls.add(count);
+                    done.countDown();
+                }).start();
+            }
+            long reloads = 0;
+            while(reload && System.nanoTime() < end) {
+                int capacity = 500 + (int) (reloads % 1_000);
+                rateLimiter.updateConfig(Map.of(
+                        "tier.premium", new BucketLimit(capacity * 10, capacity * 10, 1),
+                        "tier.free", new BucketLimit(capacity, capacity, 1),
+                        "bucketCapacity", capacity));
+                reloads++;
+            }
+            done.await();
+            long worst = Arrays.stream(slowest).max().orElse(0);
+            System.out.printf("%7d | %21d | %d%n", reloads, worst / 1_000, calls.sum());
+        }
+    }
+
+    // A gateway request fanning out to 16 backends, each with its own limit key.
+    private static void fanOutBatch() {
+        TokenBucketStrategy rateLimiter = new TokenBucketStrategy((int) TokenBucketStrategy.TOKEN_MASK,
+                (int) TokenBucketStrategy.TOKEN_MASK, 1);
+        String[] keys = new String[16];
+        for(int i = 0; i < keys.length; i++) {
+            keys[i] = "backend-" + i;
+        }
+        int requests = 2_000_000;
+        for(int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for(int r = 0; r < requests; r++) {
+                for(String key: keys) {
+                    rateLimiter.giveAccess(key);
+                }
+            }
+            long perKeyCalls = (System.nanoTime() - start) / requests;
+
+            start = System.nanoTime();
+            for(int r = 0; r < requests; r++) {
+                rateLimiter.tryAcquireAll(keys);
+            }
+            long batched = (System.nanoTime() - start) / requests;
+            if(round == 1) {
+                System.out.printf("fan-out of %d keys: %d ns per request with giveAccess per key, %d ns with tryAcquireAll%n",
+                        keys.length, perKeyCalls, batched);
+            }
+        }
+    }
+
+    // Three gateway nodes share a quota of 1000 requests per second (burst 1000) for one client, whose
+    // requests are spread round robin over the nodes, once at 800 and once at 5000 requests per second.
+    // Larger leases cost fewer store calls but let more tokens sit idle on a node. When the quota is
+    // exhausted store calls are bounded by the empty backoff per node, not by the request rate.
+    private static void leasing() {
+        System.out.println("lease size | 800/s admitted | 800/s store calls | 5000/s admitted (max 6000) | 5000/s store calls");
+        for(int leaseSize: new int[]{1, 10, 50, 200}) {
+            long[] underQuota = leasingRun(leaseSize, 4, 5);
+            long[] overQuota = leasingRun(leaseSize, 5, 1);
+            System.out.printf("%10d | %14d | %17d | %26d | %18d%n",
+                    leaseSize, underQuota[0], underQuota[1], overQuota[0], overQuota[1]);
+        }
+
+        // one request per key, keys are never seen again: the sweep returns their leases and forgets them
+        long[] fakeNanos = new long[1];
+        InMemoryQuotaStore store = new InMemoryQuotaStore(new BucketLimit(1_000, 1, 1), () -> fakeNanos[0]);
+        LeasingRateLimiter node = new LeasingRateLimiter(store, 50, 1_000, 10, () -> fakeNanos[0]);
+        for(int i = 0; i < 100_000; i++) {
+            node.giveAccess("client-" + i);
+        }
+        int before = node.getLeasedKeys();
+        fakeNanos[0] = 1_000_000_000L;
+        node.sweepExpired();
+        System.out.printf("one-off keys: %d leases held, %d after the sweep%n", before, node.getLeasedKeys());
+        node.shutDown();
+    }
+
+    // sends `requests` every `everyMillis` for 5 seconds of fake time, returns {admitted, store calls}
+    private static long[] leasingRun(int leaseSize, int requests, int everyMillis) {
+        long[] fakeNanos = new long[1];
+        InMemoryQuotaStore store = new InMemoryQuotaStore(new BucketLimit(1_000, 1, 1), () -> fakeNanos[0]);
+        LeasingRateLimiter[] nodes = new LeasingRateLimiter[3];
+        for(int i = 0; i < nodes.length; i++) {
+            nodes[i] = new LeasingRateLimiter(store, leaseSize, 1_000, 10, () -> fakeNanos[0]);
+        }
+        long admitted = 0;
+        long sent = 0;
+        for(int ms = 0; ms < 5_000; ms += everyMillis) {
+            fakeNanos[0] = ms * 1_000_000L;
+            for(int r = 0; r < requests; r++) {
+                if(nodes[(int) (sent++ % nodes.length)].giveAccess("client")) admitted++;
+            }
+        }
+        for(LeasingRateLimiter node: nodes) {
+            node.shutDown();
+        }
+        return new long[]{admitted, store.getCalls()};
+    }
+
+    // 2000 callers arrive at once on a key allowing 10 requests per 10ms. Instead of rejecting 1990 of them
+    // they are queued and released at the refill rate, without a thread per waiter.
+    private static void asyncBurst() throws InterruptedException {
+        TokenBucketStrategy rateLimiter = new TokenBucketStrategy(10, 10, 10);
+        int callers = 2_000;
+        int threadsBefore = Thread.activeCount();
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for(int i = 0; i < callers; i++) {
+            futures.add(rateLimiter.acquireAsync("burst", 1, 5_000));
+        }
+        int threadsWhileWaiting = Thread.activeCount();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .exceptionally(error -> null).join();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        long timedOut = futures.stream().filter(CompletableFuture::isCompletedExceptionally).count();
+        System.out.printf("async burst: %d callers served in %d ms (ideal %d ms), %d timed out, threads %d -> %d%n",
+                callers, elapsedMillis, (callers - 10) / 10 * 10, timedOut, threadsBefore, threadsWhileWaiting);
+        rateLimiter.shutDown();
+    }
+
+    // every thread hammers the same hot key, which is the case the lock serialized
+    private static long measure(IRateLimiter rateLimiter, int threads) throws InterruptedException {
+        LongAdder ops = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        long warmupEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WARMUP_MILLIS);
+        long measureEnd = warmupEnd + TimeUnit.MILLISECONDS.toNanos(MEASURE_MILLIS);
+
+        for(int i = 0; i < threads; i++) {
+            Thread thread = new Thread(() -> {
+                long count = 0;
+                while(System.nanoTime() < warmupEnd) {
+                    rateLimiter.giveAccess("hot-key");
+                }
+                while(System.nanoTime() < measureEnd) {
+                    for(int j = 0; j < 64; j++) {
+                        rateLimiter.giveAccess("hot-key");
+                    }
+                    count += 64;
+                }
+                ops.add(count);
+                done.countDown();
+            });
+            thread.start();
+        }
+        done.await();
+        return ops.sum() * 1000 / MEASURE_MILLIS;
+    }
+}
@@ -0,0 +1,155 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Approximates a sliding window with two fixed windows: the previous window's count is weighted by how much
+// of it still overlaps the sliding window. State per key is one long: window index, previous and current count.
+class SlidingWindowCounterStrategy implements IRateLimiter {
+    private static final int COUNT_BITS = 16;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    // state of a counter that was evicted, no real window index gets that high
+    private static final long RETIRED = -1L;
+
+    private final int limit;
+    private final long windowNanos;
+    private final long startNanos;
+    private final long maxKeys;
+    private final LongSupplier nanoClock;
+    private final Map<String, AtomicLong> windows;
+
+    SlidingWindowCounterStrategy(int limit, long windowMillis) {
+        this(limit, windowMillis, Long.MAX_VALUE, System::nanoTime);
+    }
+
+    // maxKeys bounds the number of tracked keys, keys with nothing left in either window are evicted
+    // first and the ones with the fewest requests in the window after that
+    SlidingWindowCounterStrategy(int limit, long windowMillis, long maxKeys) {
+        this(limit, windowMillis, maxKeys, System::nanoTime);
+    }
+
+    SlidingWindowCounterStrategy(int limit, long windowMillis, long maxKeys, LongSupplier nanoClock) {
+        if(limit < 1 || limit > COUNT_MASK) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + COUNT_MASK);
+        }
+        if(maxKeys < 1) {
+            throw new IllegalArgumentException("Max keys must be positive");
+        }
+        this.limit = limit;
+        this.windowNanos = windowMillis * 1_000_000;
+        this.maxKeys = maxKeys;
+        this.nanoClock = nanoClock;
+        this.startNanos = nanoClock.getAsLong();
+        this.windows = new ConcurrentHashMap<>();
+    }
+
+    private static long pack(long window, long previous, long current) {
+        return (window << (2 * COUNT_BITS)) | (previous << COUNT_BITS) | current;
+    }
+
+    @Override
+    public boolean giveAccess(String key) {
+        return tryAcquire(key, 1);
+    }
+
+    @Override
+    public boolean tryAcquire(String key, int permits) {
+        if(key == null || key.isEmpty() || permits < 1 || permits > limit) return false;
+        long elapsed = nanoClock.getAsLong() - startNanos;
+        long now = elapsed / windowNanos;
+        double previousWeight = 1.0 - (double) (elapsed % windowNanos) / windowNanos;
+
+        AtomicLong counter = windows.get(key);
+        if(counter == null && windows.size() >= maxKeys) {
+            evict(now);
+        }
+        while(true) {
+            if(counter == null) {
+                counter = windows.computeIfAbsent(key, k -> new AtomicLong(pack(now, 0, 0)));
+            }
+            long window = now;
+            long state = counter.get();
+            if(state == RETIRED) {
+                // evicted under us, it is about to leave the map and a fresh counter takes its place
+                counter = null;
+                Thread.onSpinWait();
+                continue;
+            }
+            long stateWindow = state >>> (2 * COUNT_BITS);
+            long previous = (state >>> COUNT_BITS) & COUNT_MASK;
+            long current = state & COUNT_MASK;
+            if(window == stateWindow + 1) {
+                previous = current;
+                current = 0;
+            } else if(window > stateWindow + 1) {
+                previous = 0;
+                current = 0;
+            } else if(window < stateWindow) {
+                // a caller with an older clock read, count it against the newer window
+                window = stateWindow;
+            }
+
+            if(previous * previousWeight + current + permits > limit) {
+                return false;
+            }
+            if(counter.compareAndSet(state, pack(window, previous, current + permits))) {
+                return true;
+            }
+        }
+    }
+
+    // Runs when a new key would go over maxKeys. Counters whose windows have both passed count nothing and
+    // go first; if that isn't enough the ones counting the fewest requests go next, an evicted key starts over
+    // so that is the fewest extra requests let through. Eviction goes down to three quarters of maxKeys so the
+    // sort is paid once per maxKeys / 4 new keys. A counter is retired before it is removed, so a request still
+    // holding it retries instead of counting into a dropped counter.
+    private synchronized void evict(long now) {
+        if(windows.size() < maxKeys) return;
+        List<Candidate> live = new ArrayList<>();
+        for(Map.Entry<String, AtomicLong> entry: windows.entrySet()) {
+            AtomicLong counter = entry.getValue();
+            long state = counter.get();
+            if(state == RETIRED) continue;
+            long window = state >>> (2 * COUNT_BITS);
+            if(window + 1 < now && counter.compareAndSet(state, RETIRED)) {
+                windows.remove(entry.getKey(), counter);
+            } else {
+                long current = state & COUNT_MASK;
+                long counted = window >= now ? current + ((state >>> COUNT_BITS) & COUNT_MASK) : current;
+                live.add(new Candidate(entry.getKey(), counter, counted));
+            }
+        }
+        long target = maxKeys - Math.max(1, maxKeys / 4);
+        if(windows.size() <= target) return;
+        live.sort((a, b) -> Long.compare(a.counted(), b.counted()));
+        for(Candidate candidate: live) {
+            if(windows.size() <= target) break;
+            candidate.counter().set(RETIRED);
+            windows.remove(candidate.key(), candidate.counter());
+        }
+    }
+
+    private record Candidate(String key, AtomicLong counter, long counted) {
+    }
+
+    public long trackedKeys() {
+        return windows.size();
+    }
+
+    public double bytesPerKey() {
+        // map node + AtomicLong, key strings are the caller's
+        return 32 + 16;
+    }
+
+    @Override
+    public void shutDown() {
+    }
+
+    @Override
+    public void updateConfig(Map<String, Object> config) {
+    }
+}
@@ -0,0 +1,152 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+// Exact sliding window: every key keeps the timestamps of its last `limit` admitted requests in a ring.
+// A request is admitted only when the oldest of them has left the window, then it takes that slot.
+class SlidingWindowLogStrategy implements IRateLimiter {
+    private final int limit;
+    private final long windowNanos;
+    private final long maxKeys;
+    private final LongSupplier nanoClock;
+    private final Map<String, TimestampRing> logs;
+
+    SlidingWindowLogStrategy(int limit, long windowMillis) {
+        this(limit, windowMillis, Long.MAX_VALUE, System::nanoTime);
+    }
+
+    // maxKeys bounds the number of tracked keys, keys with no request left in the window are evicted
+    // first and the ones with the fewest requests in the window after that
+    SlidingWindowLogStrategy(int limit, long windowMillis, long maxKeys) {
+        this(limit, windowMillis, maxKeys, System::nanoTime);
+    }
+
+    SlidingWindowLogStrategy(int limit, long windowMillis, long maxKeys, LongSupplier nanoClock) {
+        if(limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        if(maxKeys < 1) {
+            throw new IllegalArgumentException("Max keys must be positive");
+        }
+        this.limit = limit;
+        this.windowNanos = windowMillis * 1_000_000;
+        this.maxKeys = maxKeys;
+        this.nanoClock = nanoClock;
+        this.logs = new ConcurrentHashMap<>();
+    }
+
+    // guarded by its own monitor
+    private class TimestampRing {
+        private final long[] timestamps;
+        private int oldest;
+        private boolean retired;
+
+        TimestampRing() {
+            this.timestamps = new long[limit];
+            Arrays.fill(timestamps, Long.MIN_VALUE);
+        }
+
+        int inWindow(long now) {
+            int count = 0;
+            for(long timestamp: timestamps) {
+                if(timestamp != Long.MIN_VALUE && now - timestamp < windowNanos) count++;
+            }
+            return count;
+        }
+
+        // timestamps are in admit order starting at `oldest`, so if the permits-th oldest has left the
+        // window so have all the ones before it
+        boolean tryAdmit(long now, int permits) {
+            long youngestNeeded = timestamps[(oldest + permits - 1) % limit];
+            if(youngestNeeded != Long.MIN_VALUE && now - youngestNeeded < windowNanos) {
+                return false;
+            }
+            for(int i = 0; i < permits; i++) {
+                timestamps[oldest] = now;
+                oldest = oldest + 1 == limit ? 0 : oldest + 1;
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public boolean giveAccess(String key) {
+        return tryAcquire(key, 1);
+    }
+
+    @Override
+    public boolean tryAcquire(String key, int permits) {
+        if(key == null || key.isEmpty() || permits < 1 || permits > limit) return false;
+        long now = nanoClock.getAsLong();
+        if(!logs.containsKey(key) && logs.size() >= maxKeys) {
+            evict(now);
+        }
+        while(true) {
+            TimestampRing ring = logs.computeIfAbsent(key, k -> new TimestampRing());
+            synchronized (ring) {
+                // a retired ring is about to leave the map and a fresh one takes its place
+                if(!ring.retired) return ring.tryAdmit(now, permits);
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    // Runs when a new key would go over maxKeys. Rings whose newest request has left the window admit like a
+    // fresh ring and go first; if that isn't enough the ones with the fewest requests in the window go next,
+    // an evicted key starts over so that is the fewest extra requests let through. Eviction goes down to three
+    // quarters of maxKeys so the sort is paid once per maxKeys / 4 new keys. A ring is retired before it is
+    // removed, so a request still holding it retries instead of admitting into a dropped ring.
+    private synchronized void evict(long now) {
+        if(logs.size() < maxKeys) return;
+        List<Candidate> live = new ArrayList<>();
+        for(Map.Entry<String, TimestampRing> entry: logs.entrySet()) {
+            TimestampRing ring = entry.getValue();
+            int inWindow;
+            synchronized (ring) {
+                if(ring.retired) continue;
+                inWindow = ring.inWindow(now);
+                ring.retired = inWindow == 0;
+            }
+            if(ring.retired) {
+                logs.remove(entry.getKey(), ring);
+            } else {
+                live.add(new Candidate(entry.getKey(), ring, inWindow));
+            }
+        }
+        long target = maxKeys - Math.max(1, maxKeys / 4);
+        if(logs.size() <= target) return;
+        live.sort((a, b) -> Integer.compare(a.inWindow(), b.inWindow()));
+        for(Candidate candidate: live) {
+            if(logs.size() <= target) break;
+            synchronized (candidate.ring()) {
+                candidate.ring().retired = true;
+            }
+            logs.remove(candidate.key(), candidate.ring());
+        }
+    }
+
+    private record Candidate(String key, TimestampRing ring, int inWindow) {
+    }
+
+    public long trackedKeys() {
+        return logs.size();
+    }
+
+    public double bytesPerKey() {
+        // map node + ring object + long[] header and timestamps, key strings are the caller's
+        return 32 + 24 + 16 + 8.0 * limit;
+    }
+
+    @Override
+    public void shutDown() {
+    }
+
+    @Override
+    public void updateConfig(Map<String, Object> config) {
+    }
+}
@@ -0,0 +1,372 @@
+package org.example;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+class TokenBucketStrategy implements IRateLimiter {
+    // bucket state packed in one long: high bits -> millis since start of last refill, low bits -> tokens
+    static final int TOKEN_BITS = 24;
+    static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+
+    private final int stripesPerBucket;
+    private final long startNanos;
+    private final BucketTable buckets;
+    private final LongSupplier nanoClock;
+    private volatile LimitConfig config;
+    private final Map<String, Waiters> waitQueues;
+    private volatile ScheduledExecutorService waitTimer;
+    private boolean closed;
+
+    TokenBucketStrategy(int bucketCapacity,
+                        int refreshRate,
+                        int refillInMillis) {
+        this(bucketCapacity, refreshRate, refillInMillis, 1);
+    }
+
+    TokenBucketStrategy(int bucketCapacity,
+                        int refreshRate,
+                        int refillInMillis,
+                        int stripesPerBucket) {
+        this(bucketCapacity, refreshRate, refillInMillis, stripesPerBucket, Long.MAX_VALUE, 0);
+    }
+
+    // maxKeys bounds the number of tracked keys, idle full buckets are evicted first and the least
+    // recently refilled ones after that. idleMillis is how long a full bucket is kept before it can go.
+    TokenBucketStrategy(int bucketCapacity,
+                        int refreshRate,
+                        int refillInMillis,
+                        int stripesPerBucket,
+                        long maxKeys,
+                        long idleMillis) {
+        this(bucketCapacity, refreshRate, refillInMillis, stripesPerBucket, maxKeys, idleMillis, System::nanoTime);
+    }
+
+    TokenBucketStrategy(int bucketCapacity,
+                        int refreshRate,
+                        int refillInMillis,
+                        int stripesPerBucket,
+                        long maxKeys,
+                        long idleMillis,
+                        LongSupplier nanoClock) {
+        BucketLimit defaultLimit = new BucketLimit(bucketCapacity, refreshRate, refillInMillis);
+        if(stripesPerBucket < 1) {
+            throw new IllegalArgumentException("Stripes must be at least 1");
+        }
+        this.stripesPerBucket = stripesPerBucket;
+        checkStripes(defaultLimit);
+        this.config = new LimitConfig(defaultLimit, Map.of(), Map.of());
+        this.nanoClock = nanoClock;
+        this.startNanos = nanoClock.getAsLong();
+        this.buckets = new BucketTable(64, stripesPerBucket, maxKeys, idleMillis, key -> this.config.limitFor(key));
+        this.waitQueues = new ConcurrentHashMap<>();
+    }
+
+    private long nowMillis() {
+        return (nanoClock.getAsLong() - startNanos) / 1_000_000;
+    }
+
+    static long pack(long millis, long tokens) {
+        return (millis << TOKEN_BITS) | tokens;
+    }
+
+    static long tokens(long state) {
+        return state & TOKEN_MASK;
+    }
+
+    static long millis(long state) {
+        return state >>> TOKEN_BITS;
+    }
+
+    // Hot keys can split their capacity over several stripes so concurrent callers CAS different words.
+    // A caller starts at its own stripe and walks the others before giving up, so the
+    // total across stripes still never exceeds the bucket capacity.
+    static int share(int total, int stripe, int stripes) {
+        return total / stripes + (stripe < total % stripes ? 1 : 0);
+    }
+
+    // Tokens owed since the last refill are added on access, there is no background sweep, so the cost
+    // of a request doesn't depend on how many keys are tracked. The refill timestamp only moves forward
+    // by whole intervals so partial intervals aren't lost between calls.
+    // A bucket created under an older config is migrated here too: tokens above a lowered capacity are dropped
+    // on its next access, a raised capacity fills up through normal refill.
+    static long refilled(long state, long now, int capacity, int refill, int refillInMillis) {
+        if(tokens(state) > capacity) {
+            state = pack(millis(state), capacity);
+        }
+        long last = millis(state);
+        long intervals = (now - last) / refillInMillis;
+        if(intervals <= 0) return state;
+
+        long tokens = tokens(state);
+        if(tokens + intervals * refill >= capacity) {
+            return pack(now, capacity);
+        }
+        return pack(last + intervals * refillInMillis, tokens + intervals * refill);
+    }
+
+    public void evictIdle() {
+        buckets.evictIdle(nowMillis());
+    }
+
+    public LimitConfig getConfig() {
+        return config;
+    }
+
+    public long trackedKeys() {
+        return buckets.size();
+    }
+
+    public double bytesPerKey() {
+        return buckets.bytesPerKey();
+    }
+
+    @Override
+    public boolean giveAccess(String key) {
+        return tryAcquire(key, 1);
+    }
+
+    @Override
+    public boolean tryAcquire(String key, int permits) {
+        if(key == null || key.isEmpty() || permits < 1) return false;
+        boolean gotToken = buckets.tryConsume(key, nowMillis(), config.limitFor(key), permits);
+        // layer to block user or any other strategy
+        return gotToken;
+    }
+
+    public boolean tryAcquireAll(String... keys) {
+        int[] permits = new int[keys.length];
+        Arrays.fill(permits, 1);
+        return tryAcquireAll(keys, permits);
+    }
+
+    // All or nothing across keys: one clock read and one config snapshot for the whole batch. If a key can't
+    // pay, the keys already charged get their tokens back, so nobody is charged for a rejected batch.
+    // Other callers may see those tokens missing for the short time the batch is being rolled back.
+    public boolean tryAcquireAll(String[] keys, int[] permits) {
+        if(keys.length != permits.length) {
+            throw new IllegalArgumentException("Every key needs a permit count");
+        }
+        long now = nowMillis();
+        LimitConfig snapshot = config;
+        for(int i = 0; i < keys.length; i++) {
+            if(keys[i] == null || keys[i].isEmpty() || permits[i] < 1) return false;
+        }
+        for(int i = 0; i < keys.length; i++) {
+            if(!buckets.tryConsume(keys[i], now, snapshot.limitFor(keys[i]), permits[i])) {
+                for(int j = 0; j < i; j++) {
+                    buckets.refund(keys[j], now, snapshot.limitFor(keys[j]), permits[j]);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record Waiter(int permits, CompletableFuture<Void> future) {}
+
+    // FIFO of callers waiting on one key. Only the timer drains it, a new caller may take tokens directly
+    // only while nobody is queued, so waiters are served in arrival order.
+    private static class Waiters {
+        private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+        private boolean drainScheduled;
+        private boolean retired;
+    }
+
+    public CompletableFuture<Void> acquireAsync(String key) {
+        return acquireAsync(key, 1, Long.MAX_VALUE);
+    }
+
+    // Completes once `permits` tokens were taken for the key, or exceptionally with a TimeoutException.
+    // Waiters don't hold a thread, a single timer thread per limiter wakes a key's queue when its next
+    // refill is due. Futures are completed on that timer thread, so chain heavy work with the *Async variants.
+    public CompletableFuture<Void> acquireAsync(String key, int permits, long timeoutMillis) {
+        if(key == null || key.isEmpty() || permits < 1) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Invalid key or permits"));
+        }
+        if(permits > config.limitFor(key).capacity()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Permits exceed bucket capacity"));
+        }
+        ScheduledExecutorService timer = waitTimer();
+        while(true) {
+            Waiters waiters = waitQueues.computeIfAbsent(key, k -> new Waiters());
+            synchronized (waiters) {
+                if(waiters.retired) continue;
+                // shutDown stops the timer before it empties the queues, so a waiter added here would never be released
+                if(timer == null || timer.isShutdown()) {
+                    return CompletableFuture.failedFuture(new RejectedExecutionException("Rate limiter shut down"));
+                }
+                if(waiters.queue.isEmpty() && tryAcquire(key, permits)) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                Waiter waiter = new Waiter(permits, new CompletableFuture<>());
+                try {
+                    if(timeoutMillis != Long.MAX_VALUE) {
+                        ScheduledFuture<?> timeout = timer.schedule(() -> waiter.future().completeExceptionally(
+                                new TimeoutException("No token for " + key + " within " + timeoutMillis + "ms")),
+                                timeoutMillis, TimeUnit.MILLISECONDS);
+                        waiter.future().whenComplete((ignored, error) -> timeout.cancel(false));
+                    }
+                    waiters.queue.add(waiter);
+                    scheduleDrain(key, waiters, timer);
+                } catch (RejectedExecutionException e) {
+                    // shut down while we were queueing
+                    waiters.queue.remove(waiter);
+                    return CompletableFuture.failedFuture(e);
+                }
+                return waiter.future();
+            }
+        }
+    }
+
+    // null once the limiter is shut down
+    private ScheduledExecutorService waitTimer() {
+        ScheduledExecutorService timer = waitTimer;
+        if(timer == null) {
+            synchronized (this) {
+                timer = waitTimer;
+                if(timer == null && !closed) {
+                    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                        Thread thread = new Thread(runnable, "rate-limiter-wait-timer");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor.setRemoveOnCancelPolicy(true);
+                    waitTimer = timer = executor;
+                }
+            }
+        }
+        return timer;
+    }
+
+    // called with the waiters monitor held
+    private void scheduleDrain(String key, Waiters waiters, ScheduledExecutorService timer) {
+        if(waiters.drainScheduled) return;
+        waiters.drainScheduled = true;
+        long delay = buckets.millisUntilRefill(key, nowMillis(), config.limitFor(key));
+        timer.schedule(() -> drain(key, waiters, timer), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void drain(String key, Waiters waiters, ScheduledExecutorService timer) {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (waiters) {
+            waiters.drainScheduled = false;
+            long now = nowMillis();
+            BucketLimit limit = config.limitFor(key);
+            while(!waiters.queue.isEmpty()) {
+                Waiter head = waiters.queue.peek();
+                if(head.future().isDone()) {
+                    waiters.queue.poll();
+                } else if(buckets.tryConsume(key, now, limit, head.permits())) {
+                    waiters.queue.poll();
+                    granted.add(head);
+                } else {
+                    break;
+                }
+            }
+            if(waiters.queue.isEmpty()) {
+                waiters.retired = true;
+                waitQueues.remove(key, waiters);
+            } else {
+                scheduleDrain(key, waiters, timer);
+            }
+        }
+        for(Waiter waiter: granted) {
+            if(!waiter.future().complete(null)) {
+                // timed out between the grant and now, the tokens are not used by anyone
+                buckets.refund(key, nowMillis(), config.limitFor(key), waiter.permits());
+            }
+        }
+    }
+
+    @Override
+    public void shutDown() {
+        // refill happens on access, only waiting callers need to be released
+        ScheduledExecutorService timer;
+        synchronized (this) {
+            closed = true;
+            timer = waitTimer;
+        }
+        if(timer != null) {
+            timer.shutdownNow();
+        }
+        waitQueues.forEach((key, waiters) -> {
+            synchronized (waiters) {
+                waiters.queue.forEach(waiter -> waiter.future().completeExceptionally(
+                        new RejectedExecutionException("Rate limiter shut down")));
+                waiters.queue.clear();
+            }
+        });
+    }
+
+    // Supported entries:
+    //   "bucketCapacity", "refreshRate", "refillInMillis" -> Integer, changes the default limit
+    //   "tier.<name>" -> BucketLimit for keys prefixed "<name>:", null removes it
+    //   "key.<key>"   -> BucketLimit for one key, null removes it
+    // Callers never wait on an update, they keep reading the old snapshot until the new one is published
+    // and existing buckets adopt the new limit on their next access.
+    @Override
+    public synchronized void updateConfig(Map<String, Object> config) {
+        LimitConfig current = this.config;
+        BucketLimit defaultLimit = current.getDefaultLimit();
+        int capacity = defaultLimit.capacity();
+        int refreshRate = defaultLimit.refreshRate();
+        int refillInMillis = defaultLimit.refillInMillis();
+        Map<String, BucketLimit> tierLimits = new HashMap<>(current.getTierLimits());
+        Map<String, BucketLimit> keyLimits = new HashMap<>(current.getKeyLimits());
+
+        for(Map.Entry<String, Object> entry: config.entrySet()) {
+            String name = entry.getKey();
+            Object value = entry.getValue();
+            if(name.equals("bucketCapacity")) {
+                capacity = ((Number) value).intValue();
+            } else if(name.equals("refreshRate")) {
+                refreshRate = ((Number) value).intValue();
+            } else if(name.equals("refillInMillis")) {
+                refillInMillis = ((Number) value).intValue();
+            } else if(name.startsWith("tier.")) {
+                putOrRemove(tierLimits, name.substring("tier.".length()), value);
+            } else if(name.startsWith("key.")) {
+                putOrRemove(keyLimits, name.substring("key.".length()), value);
+            } else {
+                throw new IllegalArgumentException("Unknown rate limit config " + name);
+            }
+        }
+
+        LimitConfig next = new LimitConfig(new BucketLimit(capacity, refreshRate, refillInMillis), tierLimits, keyLimits);
+        checkStripes(next.getDefaultLimit());
+        next.getTierLimits().values().forEach(this::checkStripes);
+        next.getKeyLimits().values().forEach(this::checkStripes);
+        this.config = next;
+    }
+
+    private void putOrRemove(Map<String, BucketLimit> limits, String name, Object value) {
+        if(value == null) {
+            limits.remove(name);
+        } else {
+            limits.put(name, (BucketLimit) value);
+        }
+    }
+
+    // every stripe needs at least one token of capacity and of refill, a stripe with a refill of 0 would never refill
+    private void checkStripes(BucketLimit limit) {
+        if(limit.capacity() < stripesPerBucket) {
+            throw new IllegalArgumentException("Bucket capacity can't be lower than the stripe count");
+        }
+        if(limit.refreshRate() < stripesPerBucket) {
+            throw new IllegalArgumentException("Refresh rate can't be lower than the stripe count");
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.example;
+
+// Moves packed into an int: from square, to square, promotion piece type and flags.
+final class BitMove {
+    // a1a1, never a move
+    static final int NO_MOVE = 0;
+    static final int QUIET = 0;
+    static final int EN_PASSANT = 1;
+    static final int CASTLE = 2;
+    static final int DOUBLE_PUSH = 4;
+
+    private BitMove() {}
+
+    static int of(int from, int to, int promotion, int flags) {
+        return from | to << 6 | promotion << 12 | flags << 15;
+    }
+
+    static int from(int move) { return move & 63; }
+
+    static int to(int move) { return move >>> 6 & 63; }
+
+    // piece type, 0 when the move is no promotion
+    static int promotion(int move) { return move >>> 12 & 7; }
+
+    static int flags(int move) { return move >>> 15; }
+
+    static String toUci(int move) {
+        String uci = square(from(move)) + square(to(move));
+        return promotion(move) == 0 ? uci : uci + "pnbrqk".charAt(promotion(move));
+    }
+
+    static String square(int sq) {
+        return "" + (char) ('a' + (sq & 7)) + (char) ('1' + (sq >>> 3));
+    }
+}
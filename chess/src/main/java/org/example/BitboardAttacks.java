@@ -0,0 +1,138 @@
+package org.example;
+
+import java.util.*;
+
+// Attack sets by square, squares numbered a1 = 0, b1 = 1 ... h8 = 63.
+// Knights, kings and pawns come from tables. Sliders use magic bitboards: the blockers on a square's rays
+// (the mask, board edges left out) times the square's magic, shifted, index a table of precomputed attacks.
+// The magics are searched for once at class load with a fixed seed, which takes a few milliseconds.
+final class BitboardAttacks {
+    static final long FILE_A = 0x0101010101010101L;
+    static final long FILE_H = FILE_A << 7;
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    // PAWN[color][square]: squares a pawn of that color attacks
+    private static final long[][] PAWN = new long[2][64];
+
+    private static final long[] ROOK_MASK = new long[64];
+    private static final long[] ROOK_MAGIC = new long[64];
+    private static final int[] ROOK_SHIFT = new int[64];
+    private static final long[][] ROOK_TABLE = new long[64][];
+    private static final long[] BISHOP_MASK = new long[64];
+    private static final long[] BISHOP_MAGIC = new long[64];
+    private static final int[] BISHOP_SHIFT = new int[64];
+    private static final long[][] BISHOP_TABLE = new long[64][];
+
+    private static final int[][] ROOK_DIRECTIONS = {{1,0},{-1,0},{0,1},{0,-1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1,1},{1,-1},{-1,1},{-1,-1}};
+
+    static {
+        int[][] knightSteps = {{1,2},{2,1},{2,-1},{1,-2},{-1,-2},{-2,-1},{-2,1},{-1,2}};
+        int[][] kingSteps = {{1,0},{1,1},{0,1},{-1,1},{-1,0},{-1,-1},{0,-1},{1,-1}};
+        for(int sq=0;sq<64;sq++) {
+            KNIGHT[sq] = steps(sq, knightSteps);
+            KING[sq] = steps(sq, kingSteps);
+            PAWN[0][sq] = steps(sq, new int[][]{{-1,1},{1,1}});
+            PAWN[1][sq] = steps(sq, new int[][]{{-1,-1},{1,-1}});
+        }
+        Random random = new Random(20240601L);
+        for(int sq=0;sq<64;sq++) {
+            ROOK_MASK[sq] = relevantBlockers(sq, ROOK_DIRECTIONS);
+            ROOK_SHIFT[sq] = 64 - Long.bitCount(ROOK_MASK[sq]);
+            ROOK_TABLE[sq] = new long[1 << Long.bitCount(ROOK_MASK[sq])];
+            ROOK_MAGIC[sq] = findMagic(sq, ROOK_MASK[sq], ROOK_SHIFT[sq], ROOK_TABLE[sq], ROOK_DIRECTIONS, random);
+            BISHOP_MASK[sq] = relevantBlockers(sq, BISHOP_DIRECTIONS);
+            BISHOP_SHIFT[sq] = 64 - Long.bitCount(BISHOP_MASK[sq]);
+            BISHOP_TABLE[sq] = new long[1 << Long.bitCount(BISHOP_MASK[sq])];
+            BISHOP_MAGIC[sq] = findMagic(sq, BISHOP_MASK[sq], BISHOP_SHIFT[sq], BISHOP_TABLE[sq], BISHOP_DIRECTIONS, random);
+        }
+    }
+
+    private BitboardAttacks() {}
+
+    static long knight(int sq) { return KNIGHT[sq]; }
+
+    static long king(int sq) { return KING[sq]; }
+
+    static long pawn(int color, int sq) { return PAWN[color][sq]; }
+
+    static long rook(int sq, long occupied) {
+        return ROOK_TABLE[sq][(int) (((occupied & ROOK_MASK[sq]) * ROOK_MAGIC[sq]) >>> ROOK_SHIFT[sq])];
+    }
+
+    static long bishop(int sq, long occupied) {
+        return BISHOP_TABLE[sq][(int) (((occupied & BISHOP_MASK[sq]) * BISHOP_MAGIC[sq]) >>> BISHOP_SHIFT[sq])];
+    }
+
+    static long queen(int sq, long occupied) { return rook(sq, occupied) | bishop(sq, occupied); }
+
+    private static long steps(int sq, int[][] steps) {
+        long attacks = 0;
+        for(int[] step: steps) {
+            int file = (sq & 7) + step[0], rank = (sq >>> 3) + step[1];
+            if(file >= 0 && file < 8 && rank >= 0 && rank < 8) attacks |= 1L << (rank * 8 + file);
+        }
+        return attacks;
+    }
+
+    // attacks found by walking the rays, used to fill the tables
+    private static long slide(int sq, long occupied, int[][] directions) {
+        long attacks = 0;
+        for(int[] direction: directions) {
+            int file = (sq & 7) + direction[0], rank = (sq >>> 3) + direction[1];
+            while(file >= 0 && file < 8 && rank >= 0 && rank < 8) {
+                long bit = 1L << (rank * 8 + file);
+                attacks |= bit;
+                if((occupied & bit) != 0) break;
+                file += direction[0];
+                rank += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    // a piece on the last square of a ray can't block anything behind it
+    private static long relevantBlockers(int sq, int[][] directions) {
+        long mask = 0;
+        for(int[] direction: directions) {
+            int file = (sq & 7) + direction[0], rank = (sq >>> 3) + direction[1];
+            while(file + direction[0] >= 0 && file + direction[0] < 8 && rank + direction[1] >= 0 && rank + direction[1] < 8) {
+                mask |= 1L << (rank * 8 + file);
+                file += direction[0];
+                rank += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    // tries sparse random numbers until one maps every blocker subset of the mask to a slot holding its attacks
+    private static long findMagic(int sq, long mask, int shift, long[] table, int[][] directions, Random random) {
+        int subsets = 1 << Long.bitCount(mask);
+        long[] occupancies = new long[subsets];
+        long[] attacks = new long[subsets];
+        long subset = 0;
+        for(int i=0;i<subsets;i++) {
+            occupancies[i] = subset;
+            attacks[i] = slide(sq, subset, directions);
+            // next subset of mask, carry-rippler
+            subset = (subset - mask) & mask;
+        }
+        int[] usedBy = new int[subsets];
+        for(int attempt=1;;attempt++) {
+            long magic = random.nextLong() & random.nextLong() & random.nextLong();
+            if(Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) continue;
+            boolean fits = true;
+            for(int i=0;i<subsets && fits;i++) {
+                int index = (int) ((occupancies[i] * magic) >>> shift);
+                if(usedBy[index] != attempt) {
+                    usedBy[index] = attempt;
+                    table[index] = attacks[i];
+                } else if(table[index] != attacks[i]) {
+                    fits = false;
+                }
+            }
+            if(fits) return magic;
+        }
+    }
+}
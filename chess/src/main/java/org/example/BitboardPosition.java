@@ -0,0 +1,299 @@
+package org.example;
+
+import java.util.*;
+
+// Chess position as one bitboard per color and piece type, plus a piece code per square for captures.
+// Moves are made and unmade in place, the state they overwrite goes on a stack. generateMoves gives
+// pseudo-legal moves; a move is legal when the mover's king isn't attacked after making it, which is
+// how legalMoves and perft filter them. Castling is only generated out of and through unattacked squares.
+final class BitboardPosition {
+    static final int WHITE = 0, BLACK = 1;
+    static final int PAWN = 0, KNIGHT = 1, BISHOP = 2, ROOK = 3, QUEEN = 4, KING = 5;
+    static final int EMPTY = -1;
+    static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final int WHITE_KING_SIDE = 1, WHITE_QUEEN_SIDE = 2, BLACK_KING_SIDE = 4, BLACK_QUEEN_SIDE = 8;
+    // castling rights kept when a piece moves from or to the square
+    private static final int[] CASTLING_KEPT = new int[64];
+    private static final int MAX_PLY = 256;
+
+    static {
+        Arrays.fill(CASTLING_KEPT, 15);
+        CASTLING_KEPT[0] = ~WHITE_QUEEN_SIDE & 15;
+        CASTLING_KEPT[4] = ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE) & 15;
+        CASTLING_KEPT[7] = ~WHITE_KING_SIDE & 15;
+        CASTLING_KEPT[56] = ~BLACK_QUEEN_SIDE & 15;
+        CASTLING_KEPT[60] = ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE) & 15;
+        CASTLING_KEPT[63] = ~BLACK_KING_SIDE & 15;
+    }
+
+    // pieces[color][type]
+    private final long[][] pieces = new long[2][6];
+    private final long[] occupied = new long[2];
+    // color * 6 + type, or EMPTY
+    private final int[] board = new int[64];
+    private int side;
+    private int castling;
+    private int enPassant = -1;
+    private int halfMoves;
+    // per ply: captured piece code, castling rights, en passant square and half move clock before the move
+    private final int[] undo = new int[MAX_PLY * 4];
+    private int ply;
+    // move lists per perft depth
+    private final int[][] moveBuffers = new int[MAX_PLY][256];
+
+    private BitboardPosition() {
+        Arrays.fill(board, EMPTY);
+    }
+
+    static BitboardPosition fromFen(String fen) {
+        BitboardPosition position = new BitboardPosition();
+        String[] fields = fen.trim().split("\\s+");
+        int rank = 7, file = 0;
+        for(char c: fields[0].toCharArray()) {
+            if(c == '/') {
+                rank--;
+                file = 0;
+            } else if(Character.isDigit(c)) {
+                file += c - '0';
+            } else {
+                int type = "pnbrqk".indexOf(Character.toLowerCase(c));
+                if(type < 0) throw new IllegalArgumentException("Bad piece '" + c + "' in FEN " + fen);
+                position.put(Character.isUpperCase(c) ? WHITE : BLACK, type, rank * 8 + file++);
+            }
+        }
+        position.side = fields.length > 1 && fields[1].equals("b") ? BLACK : WHITE;
+        String rights = fields.length > 2 ? fields[2] : "-";
+        if(rights.contains("K")) position.castling |= WHITE_KING_SIDE;
+        if(rights.contains("Q")) position.castling |= WHITE_QUEEN_SIDE;
+        if(rights.contains("k")) position.castling |= BLACK_KING_SIDE;
+        if(rights.contains("q")) position.castling |= BLACK_QUEEN_SIDE;
+        if(fields.length > 3 && !fields[3].equals("-")) {
+            position.enPassant = (fields[3].charAt(1) - '1') * 8 + (fields[3].charAt(0) - 'a');
+        }
+        position.halfMoves = fields.length > 4 ? Integer.parseInt(fields[4]) : 0;
+        return position;
+    }
+
+    int sideToMove() { return side; }
+
+    // for games that don't start with white
+    void setSideToMove(int color) {
+        side = color;
+        enPassant = -1;
+    }
+
+    // color * 6 + type, or EMPTY
+    int pieceAt(int sq) { return board[sq]; }
+
+    private void put(int color, int type, int sq) {
+        long bit = 1L << sq;
+        pieces[color][type] |= bit;
+        occupied[color] |= bit;
+        board[sq] = color * 6 + type;
+    }
+
+    private void remove(int color, int type, int sq) {
+        long bit = ~(1L << sq);
+        pieces[color][type] &= bit;
+        occupied[color] &= bit;
+        board[sq] = EMPTY;
+    }
+
+    boolean isAttacked(int sq, int by) {
+        long all = occupied[0] | occupied[1];
+        long[] attacker = pieces[by];
+        return (BitboardAttacks.pawn(by ^ 1, sq) & attacker[PAWN]) != 0
+                || (BitboardAttacks.knight(sq) & attacker[KNIGHT]) != 0
+                || (BitboardAttacks.king(sq) & attacker[KING]) != 0
+                || (BitboardAttacks.bishop(sq, all) & (attacker[BISHOP] | attacker[QUEEN])) != 0
+                || (BitboardAttacks.rook(sq, all) & (attacker[ROOK] | attacker[QUEEN])) != 0;
+    }
+
+    boolean isInCheck() {
+        return isAttacked(Long.numberOfTrailingZeros(pieces[side][KING]), side ^ 1);
+    }
+
+    // after makeMove: whether the side that just moved left its king attacked
+    private boolean leftKingAttacked() {
+        return isAttacked(Long.numberOfTrailingZeros(pieces[side ^ 1][KING]), side);
+    }
+
+    // fills moves with the pseudo-legal moves of the side to move, returns how many
+    int generateMoves(int[] moves) {
+        int count = 0;
+        int us = side, them = side ^ 1;
+        long own = occupied[us], enemy = occupied[them], all = own | enemy;
+
+        long pawns = pieces[us][PAWN];
+        int forward = us == WHITE ? 8 : -8;
+        int startRank = us == WHITE ? 1 : 6, lastRank = us == WHITE ? 7 : 0;
+        while(pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            int to = from + forward;
+            if((all & 1L << to) == 0) {
+                if(to >>> 3 == lastRank) {
+                    count = addPromotions(moves, count, from, to);
+                } else {
+                    moves[count++] = BitMove.of(from, to, 0, BitMove.QUIET);
+                    if(from >>> 3 == startRank && (all & 1L << (to + forward)) == 0) {
+                        moves[count++] = BitMove.of(from, to + forward, 0, BitMove.DOUBLE_PUSH);
+                    }
+                }
+            }
+            long captures = BitboardAttacks.pawn(us, from) & enemy;
+            while(captures != 0) {
+                to = Long.numberOfTrailingZeros(captures);
+                captures &= captures - 1;
+                if(to >>> 3 == lastRank) {
+                    count = addPromotions(moves, count, from, to);
+                } else {
+                    moves[count++] = BitMove.of(from, to, 0, BitMove.QUIET);
+                }
+            }
+            if(enPassant >= 0 && (BitboardAttacks.pawn(us, from) & 1L << enPassant) != 0) {
+                moves[count++] = BitMove.of(from, enPassant, 0, BitMove.EN_PASSANT);
+            }
+        }
+
+        for(int type=KNIGHT;type<=KING;type++) {
+            long movers = pieces[us][type];
+            while(movers != 0) {
+                int from = Long.numberOfTrailingZeros(movers);
+                movers &= movers - 1;
+                long targets = switch (type) {
+                    case KNIGHT -> BitboardAttacks.knight(from);
+                    case BISHOP -> BitboardAttacks.bishop(from, all);
+                    case ROOK -> BitboardAttacks.rook(from, all);
+                    case QUEEN -> BitboardAttacks.queen(from, all);
+                    default -> BitboardAttacks.king(from);
+                } & ~own;
+                while(targets != 0) {
+                    moves[count++] = BitMove.of(from, Long.numberOfTrailingZeros(targets), 0, BitMove.QUIET);
+                    targets &= targets - 1;
+                }
+            }
+        }
+
+        if(us == WHITE) {
+            if((castling & WHITE_KING_SIDE) != 0 && (all & 0x60L) == 0 && castlingSafe(4, 5, 6, them)) {
+                moves[count++] = BitMove.of(4, 6, 0, BitMove.CASTLE);
+            }
+            if((castling & WHITE_QUEEN_SIDE) != 0 && (all & 0x0EL) == 0 && castlingSafe(4, 3, 2, them)) {
+                moves[count++] = BitMove.of(4, 2, 0, BitMove.CASTLE);
+            }
+        } else {
+            if((castling & BLACK_KING_SIDE) != 0 && (all & 0x60L << 56) == 0 && castlingSafe(60, 61, 62, them)) {
+                moves[count++] = BitMove.of(60, 62, 0, BitMove.CASTLE);
+            }
+            if((castling & BLACK_QUEEN_SIDE) != 0 && (all & 0x0EL << 56) == 0 && castlingSafe(60, 59, 58, them)) {
+                moves[count++] = BitMove.of(60, 58, 0, BitMove.CASTLE);
+            }
+        }
+        return count;
+    }
+
+    private static int addPromotions(int[] moves, int count, int from, int to) {
+        for(int type=QUEEN;type>=KNIGHT;type--) {
+            moves[count++] = BitMove.of(from, to, type, BitMove.QUIET);
+        }
+        return count;
+    }
+
+    // the king may not castle out of, through or into check
+    private boolean castlingSafe(int kingSq, int passedSq, int targetSq, int them) {
+        return !isAttacked(kingSq, them) && !isAttacked(passedSq, them) && !isAttacked(targetSq, them);
+    }
+
+    void makeMove(int move) {
+        int from = BitMove.from(move), to = BitMove.to(move), flags = BitMove.flags(move);
+        int us = side, type = board[from] % 6;
+        int capturedSq = (flags & BitMove.EN_PASSANT) != 0 ? to - (us == WHITE ? 8 : -8) : to;
+        int captured = board[capturedSq];
+
+        int base = ply++ * 4;
+        undo[base] = captured;
+        undo[base + 1] = castling;
+        undo[base + 2] = enPassant;
+        undo[base + 3] = halfMoves;
+
+        if(captured != EMPTY) remove(captured / 6, captured % 6, capturedSq);
+        remove(us, type, from);
+        put(us, BitMove.promotion(move) != 0 ? BitMove.promotion(move) : type, to);
+        if((flags & BitMove.CASTLE) != 0) {
+            // the rook jumps to the square the king passed
+            int rookFrom = to > from ? to + 1 : to - 2, rookTo = (from + to) / 2;
+            remove(us, ROOK, rookFrom);
+            put(us, ROOK, rookTo);
+        }
+        castling &= CASTLING_KEPT[from] & CASTLING_KEPT[to];
+        enPassant = (flags & BitMove.DOUBLE_PUSH) != 0 ? (from + to) / 2 : -1;
+        halfMoves = type == PAWN || captured != EMPTY ? 0 : halfMoves + 1;
+        side ^= 1;
+    }
+
+    void unmakeMove(int move) {
+        int from = BitMove.from(move), to = BitMove.to(move), flags = BitMove.flags(move);
+        side ^= 1;
+        int us = side;
+        int base = --ply * 4;
+        int captured = undo[base];
+        castling = undo[base + 1];
+        enPassant = undo[base + 2];
+        halfMoves = undo[base + 3];
+
+        int type = BitMove.promotion(move) != 0 ? PAWN : board[to] % 6;
+        remove(us, board[to] % 6, to);
+        put(us, type, from);
+        if((flags & BitMove.CASTLE) != 0) {
+            int rookFrom = to > from ? to + 1 : to - 2, rookTo = (from + to) / 2;
+            remove(us, ROOK, rookTo);
+            put(us, ROOK, rookFrom);
+        }
+        if(captured != EMPTY) {
+            int capturedSq = (flags & BitMove.EN_PASSANT) != 0 ? to - (us == WHITE ? 8 : -8) : to;
+            put(captured / 6, captured % 6, capturedSq);
+        }
+    }
+
+    List<Integer> legalMoves() {
+        int[] moves = new int[256];
+        int count = generateMoves(moves);
+        List<Integer> legal = new ArrayList<>();
+        for(int i=0;i<count;i++) {
+            makeMove(moves[i]);
+            if(!leftKingAttacked()) legal.add(moves[i]);
+            unmakeMove(moves[i]);
+        }
+        return legal;
+    }
+
+    // the legal move between the squares, promoting to promotion (a piece type) when it is a promotion;
+    // BitMove.NO_MOVE when there is none
+    int findLegalMove(int from, int to, int promotion) {
+        for(int move: legalMoves()) {
+            if(BitMove.from(move) == from && BitMove.to(move) == to
+                    && (BitMove.promotion(move) == 0 || BitMove.promotion(move) == promotion)) {
+                return move;
+            }
+        }
+        return BitMove.NO_MOVE;
+    }
+
+    // number of leaf nodes of the legal move tree to the given depth
+    long perft(int depth) {
+        if(depth == 0) return 1;
+        int[] moves = moveBuffers[ply];
+        int count = generateMoves(moves);
+        long nodes = 0;
+        for(int i=0;i<count;i++) {
+            makeMove(moves[i]);
+            if(!leftKingAttacked()) {
+                nodes += depth == 1 ? 1 : perft(depth - 1);
+            }
+            unmakeMove(moves[i]);
+        }
+        return nodes;
+    }
+}
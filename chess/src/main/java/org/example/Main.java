@@ -7,6 +7,7 @@ record Player(String name, boolean isBlack) {}
 
 record Move(Player player, int startRow, int startCol, int endRow, int endCol){}
 
+// Pieces only say what stands on a cell, whether a move is legal is up to the board's move generator.
 abstract class Piece {
     private final boolean isBlack;
 
@@ -16,73 +17,33 @@ abstract class Piece {
 
     public boolean isBlack() { return isBlack; }
 
-    public abstract boolean canMove(Move move, Board board);
+    public boolean canMove(Move move, Board board) {
+        return board.isLegal(move);
+    }
 }
 
 class King extends Piece {
     King(boolean isBlack) { super(isBlack); }
-    @Override
-    public boolean canMove(Move move, Board board) {
-        int dr = Math.abs(move.endRow() - move.startRow());
-        int dc = Math.abs(move.endCol() - move.startCol());
-        return dr <= 1 && dc <= 1;
-    }
 }
 
 class Queen extends Piece {
     Queen(boolean isBlack) { super(isBlack); }
-    @Override
-    public boolean canMove(Move move, Board board) {
-        int dr = Math.abs(move.endRow() - move.startRow());
-        int dc = Math.abs(move.endCol() - move.startCol());
-        return (dr == dc || dr == 0 || dc == 0);
-    }
 }
 
 class Rook extends Piece {
     Rook(boolean isBlack) { super(isBlack); }
-    @Override
-    public boolean canMove(Move move, Board board) {
-        return (move.startRow() == move.endRow() || move.startCol() == move.endCol());
-    }
 }
 
 class Bishop extends Piece {
     Bishop(boolean isBlack) { super(isBlack); }
-    @Override
-    public boolean canMove(Move move, Board board) {
-        return Math.abs(move.endRow() - move.startRow()) == Math.abs(move.endCol() - move.startCol());
-    }
 }
 
 class Knight extends Piece {
     Knight(boolean isBlack) { super(isBlack); }
-    @Override
-    public boolean canMove(Move move, Board board) {
-        int dr = Math.abs(move.endRow() - move.startRow());
-        int dc = Math.abs(move.endCol() - move.startCol());
-        return (dr == 2 && dc == 1) || (dr == 1 && dc == 2);
-    }
 }
 
 class Pawn extends Piece {
-
-    Pawn(boolean isBlack) {
-        super(isBlack);
-    }
-
-    @Override
-    public boolean canMove(Move move, Board board) {
-        int dir = isBlack() ? 1 : -1;
-        int dr = move.endRow() - move.startRow();
-        int dc = Math.abs(move.endCol() - move.startCol());
-
-        if(dc == 0 && dr == dir && board.getCell(move.endRow(), move.endCol()).getPiece() == null) {
-            return true;
-        }
-
-        return dc == 1 && dr == dir && board.getCell(move.endRow(), move.endCol()).getPiece() != null;
-    }
+    Pawn(boolean isBlack) { super(isBlack); }
 }
 
 class Cell {
@@ -111,9 +72,13 @@ class Cell {
     }
 }
 
+// Row 0 is black's back rank (rank 8), column 0 the a-file. The cells mirror a BitboardPosition, which
+// decides what is legal, so blocked sliders, checks, castling, en passant and promotion all follow the rules.
+// Pawns reaching the last rank become queens.
 class Board {
     private final Cell[][] board;
     private final int size;
+    private BitboardPosition position;
 
     Board(int size) {
         this.size = size;
@@ -129,54 +94,62 @@ class Board {
     public Cell getCell(int row, int col) { return board[row][col]; }
 
     public void defaultResetBoard() {
-        // Clear
-        for(int i=0;i<size;i++) {
-            for(int j=0;j<size;j++) {
-                board[i][j].setPiece(null);
-            }
-        }
+        position = BitboardPosition.fromFen(BitboardPosition.START_FEN);
+        syncCells();
+    }
 
-        // Pawns
-        for(int j=0;j<8;j++) {
-            board[1][j].setPiece(new Pawn(true));   // black pawns
-            board[6][j].setPiece(new Pawn(false));  // white pawns
-        }
+    public void setBlackToMove(boolean isBlack) {
+        position.setSideToMove(isBlack ? BitboardPosition.BLACK : BitboardPosition.WHITE);
+    }
 
-        // Rooks
-        board[0][0].setPiece(new Rook(true)); board[0][7].setPiece(new Rook(true));
-        board[7][0].setPiece(new Rook(false)); board[7][7].setPiece(new Rook(false));
+    public boolean isLegal(Move move) {
+        return findMove(move) != BitMove.NO_MOVE;
+    }
 
-        // Knights
-        board[0][1].setPiece(new Knight(true)); board[0][6].setPiece(new Knight(true));
-        board[7][1].setPiece(new Knight(false)); board[7][6].setPiece(new Knight(false));
+    public boolean isInCheck() { return position.isInCheck(); }
 
-        // Bishops
-        board[0][2].setPiece(new Bishop(true)); board[0][5].setPiece(new Bishop(true));
-        board[7][2].setPiece(new Bishop(false)); board[7][5].setPiece(new Bishop(false));
+    public boolean hasLegalMoves() { return !position.legalMoves().isEmpty(); }
 
-        // Queens
-        board[0][3].setPiece(new Queen(true));
-        board[7][3].setPiece(new Queen(false));
+    private static int square(int row, int col) { return (7 - row) * 8 + col; }
 
-        // Kings
-        board[0][4].setPiece(new King(true));
-        board[7][4].setPiece(new King(false));
+    private int findMove(Move move) {
+        if((position.sideToMove() == BitboardPosition.BLACK) != move.player().isBlack()) return BitMove.NO_MOVE;
+        return position.findLegalMove(square(move.startRow(), move.startCol()), square(move.endRow(), move.endCol()),
+                BitboardPosition.QUEEN);
     }
 
     public boolean movePiece(Move move) {
         Piece currentPiece = board[move.startRow()][move.startCol()].getPiece();
         if(currentPiece == null || currentPiece.isBlack() != move.player().isBlack()) return false;
-        if(!currentPiece.canMove(move, this)) return false;
+        int legalMove = findMove(move);
+        if(legalMove == BitMove.NO_MOVE) return false;
 
-        Piece target = board[move.endRow()][move.endCol()].getPiece();
-        if(target != null && target.isBlack() == currentPiece.isBlack()) return false;
-
-        // Move piece
-        board[move.endRow()][move.endCol()].setPiece(currentPiece);
-        board[move.startRow()][move.startCol()].setPiece(null);
+        // Move piece, castling, en passant and promotion change more cells than the two given
+        position.makeMove(legalMove);
+        syncCells();
         return true;
     }
 
+    private void syncCells() {
+        for(int i=0;i<8;i++) {
+            for(int j=0;j<8;j++) {
+                int code = position.pieceAt(square(i, j));
+                board[i][j].setPiece(code == BitboardPosition.EMPTY ? null : newPiece(code % 6, code / 6 == BitboardPosition.BLACK));
+            }
+        }
+    }
+
+    private static Piece newPiece(int type, boolean isBlack) {
+        return switch (type) {
+            case BitboardPosition.PAWN -> new Pawn(isBlack);
+            case BitboardPosition.KNIGHT -> new Knight(isBlack);
+            case BitboardPosition.BISHOP -> new Bishop(isBlack);
+            case BitboardPosition.ROOK -> new Rook(isBlack);
+            case BitboardPosition.QUEEN -> new Queen(isBlack);
+            default -> new King(isBlack);
+        };
+    }
+
     public void printBoard() {
         for(int i=0;i<size;i++) {
             for(int j=0;j<size;j++) {
@@ -221,6 +194,7 @@ class Game implements Runnable {
         this.blackPlayer = p1.isBlack() ? p1 : p2;
         this.whitePlayer = p1.isBlack() ? p2 : p1;
         this.isBlackTurn = isBlackTurn;
+        this.board.setBlackToMove(isBlackTurn);
     }
 
     @Override
@@ -236,10 +210,10 @@ class Game implements Runnable {
                 continue;
             }
 
-            // Check if opponent King is captured
-            if(isKingCaptured(!currentPlayer.isBlack())) {
+            // Opponent has no legal move left: checkmate or stalemate
+            if(!board.hasLegalMoves()) {
                 board.printBoard();
-                System.out.println(currentPlayer.name() + " wins!");
+                System.out.println(board.isInCheck() ? currentPlayer.name() + " wins!" : "Stalemate!");
                 break;
             }
 
@@ -247,14 +221,6 @@ class Game implements Runnable {
         }
     }
 
-    private boolean isKingCaptured(boolean forBlack) {
-        for(int i=0;i<8;i++) for(int j=0;j<8;j++) {
-            Piece p = board.getCell(i,j).getPiece();
-            if(p instanceof King && p.isBlack() == forBlack) return false;
-        }
-        return true;
-    }
-
     public Player getWhitePlayer() { return whitePlayer; }
     public Player getBlackPlayer() { return blackPlayer; }
 }
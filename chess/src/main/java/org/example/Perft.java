@@ -0,0 +1,66 @@
+package org.example;
+
+// Checks the bitboard move generator against published perft node counts and measures its speed.
+// Run with: java -cp target/classes org.example.Perft [validate|bench]
+public class Perft {
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    // endgame with en passant pins along the rank
+    private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    // promotions and castling rights lost to captures
+    private static final String POSITION_4 = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    private static final String POSITION_5 = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+
+    // position, then expected node counts from depth 1 on
+    private static final Object[][] CASES = {
+            {BitboardPosition.START_FEN, new long[]{20, 400, 8_902, 197_281, 4_865_609}},
+            {KIWIPETE, new long[]{48, 2_039, 97_862, 4_085_603}},
+            {POSITION_3, new long[]{14, 191, 2_812, 43_238, 674_624}},
+            {POSITION_4, new long[]{6, 264, 9_467, 422_333}},
+            {POSITION_5, new long[]{44, 1_486, 62_379, 2_103_487}},
+    };
+
+    public static void main(String[] args) {
+        String mode = args.length > 0 ? args[0] : "validate";
+        switch (mode) {
+            case "validate" -> validate();
+            case "bench" -> bench();
+            default -> System.err.println("Unknown mode " + mode);
+        }
+    }
+
+    private static void validate() {
+        boolean allPassed = true;
+        for(Object[] test: CASES) {
+            String fen = (String) test[0];
+            long[] expected = (long[]) test[1];
+            for(int depth=1;depth<=expected.length;depth++) {
+                long nodes = BitboardPosition.fromFen(fen).perft(depth);
+                boolean passed = nodes == expected[depth - 1];
+                allPassed &= passed;
+                System.out.printf("%-4s depth %d: %,d%s  %s%n", passed ? "ok" : "FAIL", depth, nodes,
+                        passed ? "" : " expected " + expected[depth - 1], fen);
+            }
+        }
+        if(!allPassed) {
+            throw new IllegalStateException("perft node counts differ");
+        }
+    }
+
+    private static void bench() {
+        String[][] runs = {{BitboardPosition.START_FEN, "6"}, {KIWIPETE, "5"}};
+        for(int round=0;round<3;round++) {
+            boolean last = round == 2;
+            for(String[] run: runs) {
+                BitboardPosition position = BitboardPosition.fromFen(run[0]);
+                int depth = Integer.parseInt(run[1]) - (last ? 0 : 1);
+                long start = System.nanoTime();
+                long nodes = position.perft(depth);
+                long elapsed = System.nanoTime() - start;
+                if(last) {
+                    System.out.printf("depth %d: %,d nodes in %d ms, %.1f M nodes/s  %s%n", depth, nodes,
+                            elapsed / 1_000_000, nodes / (elapsed / 1e3), run[0]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package org.example;
+
+// 0 -> fire and forget, 1 -> leader append, all -> every in-sync replica
+enum Acks {
+    NONE,
+    LEADER,
+    ALL
+}
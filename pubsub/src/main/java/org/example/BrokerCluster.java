@@ -0,0 +1,511 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+record FetchResult(List<Message> messages, long highWatermark, int leaderEpoch) {}
+
+interface BrokerTransport {
+    void register(Broker broker);
+    FetchResult fetch(int leaderId, int topicId, int followerId, long fetchOffset, int maxBatch);
+}
+
+class InMemoryTransport implements BrokerTransport {
+    private final Map<Integer, Broker> brokers;
+
+    InMemoryTransport() {
+        this.brokers = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void register(Broker broker) {
+        brokers.put(broker.getId(), broker);
+    }
+
+    @Override
+    public FetchResult fetch(int leaderId, int topicId, int followerId, long fetchOffset, int maxBatch) {
+        Broker leader = brokers.get(leaderId);
+        if (leader == null || !leader.isAlive()) {
+            throw new RuntimeException("Broker " + leaderId + " is unreachable");
+        }
+        return leader.handleFetch(topicId, followerId, fetchOffset, maxBatch);
+    }
+}
+
+class PartitionReplica {
+    private final int topicId;
+    private final List<Integer> replicas;
+    private final List<Message> log;
+    private final Set<Integer> inSyncReplicas;
+    // the in-sync replicas the cluster last accepted, a shrink only counts for the high watermark once published
+    private final Set<Integer> publishedInSyncReplicas;
+    private final Map<Integer, Long> followerLogEndOffsets;
+    private final Map<Integer, Long> lastCaughtUpMillis;
+    private long highWatermark;
+    private int leaderId;
+    private int leaderEpoch;
+
+    PartitionReplica(int topicId, List<Integer> replicas) {
+        this.topicId = topicId;
+        this.replicas = replicas;
+        this.log = new ArrayList<>();
+        this.inSyncReplicas = new HashSet<>();
+        this.publishedInSyncReplicas = new HashSet<>();
+        this.followerLogEndOffsets = new ConcurrentHashMap<>();
+        this.lastCaughtUpMillis = new ConcurrentHashMap<>();
+        this.leaderId = -1;
+    }
+
+    public int getTopicId() {
+        return topicId;
+    }
+
+    public List<Integer> getReplicas() {
+        return replicas;
+    }
+
+    public synchronized int getLeaderId() {
+        return leaderId;
+    }
+
+    public synchronized int getLeaderEpoch() {
+        return leaderEpoch;
+    }
+
+    public synchronized long getHighWatermark() {
+        return highWatermark;
+    }
+
+    public synchronized long getLogEndOffset() {
+        return log.size();
+    }
+
+    public synchronized Set<Integer> getInSyncReplicas() {
+        return Set.copyOf(inSyncReplicas);
+    }
+
+    public synchronized List<Message> readCommitted(long fromOffset) {
+        if (fromOffset >= highWatermark) return List.of();
+        return List.copyOf(log.subList((int) fromOffset, (int) highWatermark));
+    }
+
+    public synchronized void becomeLeader(int brokerId, int epoch, Set<Integer> isr) {
+        this.leaderId = brokerId;
+        this.leaderEpoch = epoch;
+        this.inSyncReplicas.clear();
+        this.inSyncReplicas.addAll(isr);
+        this.inSyncReplicas.add(brokerId);
+        this.publishedInSyncReplicas.clear();
+        this.publishedInSyncReplicas.addAll(inSyncReplicas);
+        this.followerLogEndOffsets.clear();
+        long now = System.currentTimeMillis();
+        for (Integer replica : inSyncReplicas) {
+            lastCaughtUpMillis.put(replica, now);
+        }
+        notifyAll();
+    }
+
+    public synchronized void becomeFollower(int leaderId, int epoch) {
+        this.leaderId = leaderId;
+        this.leaderEpoch = epoch;
+        this.inSyncReplicas.clear();
+        this.publishedInSyncReplicas.clear();
+        // anything above the high watermark may never have been committed by the old leader
+        truncateTo(highWatermark);
+        notifyAll();
+    }
+
+    public synchronized long appendAsLeader(Message message) {
+        log.add(message);
+        updateHighWatermark();
+        return log.size() - 1;
+    }
+
+    // number of replicas that had the offset when it got committed, 0 if it wasn't committed in time
+    public synchronized int awaitCommitted(long offset, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (highWatermark <= offset) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) return 0;
+            wait(remaining);
+        }
+        return committingReplicas().size();
+    }
+
+    public synchronized FetchResult readForFollower(int followerId, long fetchOffset, int maxBatch, long replicaLagMillis) {
+        long now = System.currentTimeMillis();
+        followerLogEndOffsets.put(followerId, fetchOffset);
+        if (fetchOffset >= log.size()) {
+            lastCaughtUpMillis.put(followerId, now);
+        }
+        if (!inSyncReplicas.contains(followerId) && fetchOffset >= highWatermark) {
+            inSyncReplicas.add(followerId);
+            lastCaughtUpMillis.put(followerId, now);
+        }
+        updateHighWatermark();
+
+        int from = (int) Math.min(fetchOffset, log.size());
+        int to = Math.min(log.size(), from + maxBatch);
+        return new FetchResult(List.copyOf(log.subList(from, to)), highWatermark, leaderEpoch);
+    }
+
+    public synchronized void appendAsFollower(FetchResult fetchResult) {
+        log.addAll(fetchResult.messages());
+        highWatermark = Math.min(fetchResult.highWatermark(), log.size());
+    }
+
+    // the high watermark ignores removed replicas only after markInSyncReplicasPublished
+    public synchronized boolean shrinkInSyncReplicas(long replicaLagMillis) {
+        long now = System.currentTimeMillis();
+        return inSyncReplicas.removeIf(replica -> replica != leaderId
+                && now - lastCaughtUpMillis.getOrDefault(replica, 0L) > replicaLagMillis);
+    }
+
+    public synchronized void markInSyncReplicasPublished(Set<Integer> isr) {
+        publishedInSyncReplicas.clear();
+        publishedInSyncReplicas.addAll(isr);
+        updateHighWatermark();
+    }
+
+    // a replica still in the published set or already in the local one must have an offset before it counts as committed
+    private Set<Integer> committingReplicas() {
+        Set<Integer> replicas = new HashSet<>(inSyncReplicas);
+        replicas.addAll(publishedInSyncReplicas);
+        return replicas;
+    }
+
+    private void updateHighWatermark() {
+        long newHighWatermark = log.size();
+        for (Integer replica : committingReplicas()) {
+            if (replica == leaderId) continue;
+            newHighWatermark = Math.min(newHighWatermark, followerLogEndOffsets.getOrDefault(replica, 0L));
+        }
+        if (newHighWatermark > highWatermark) {
+            highWatermark = newHighWatermark;
+            notifyAll();
+        }
+    }
+
+    private void truncateTo(long offset) {
+        while (log.size() > offset) {
+            log.remove(log.size() - 1);
+        }
+    }
+}
+
+class Broker {
+    private final int id;
+    private final BrokerTransport transport;
+    private final BrokerCluster cluster;
+    private final Map<Integer, PartitionReplica> partitions;
+    private final int maxFetchBatch;
+    private final long fetchIntervalMillis;
+    private final long replicaLagMillis;
+    private volatile boolean alive;
+    private ScheduledExecutorService replicaFetcher;
+
+    Broker(int id, BrokerTransport transport, BrokerCluster cluster,
+           int maxFetchBatch, long fetchIntervalMillis, long replicaLagMillis) {
+        this.id = id;
+        this.transport = transport;
+        this.cluster = cluster;
+        this.partitions = new ConcurrentHashMap<>();
+        this.maxFetchBatch = maxFetchBatch;
+        this.fetchIntervalMillis = fetchIntervalMillis;
+        this.replicaLagMillis = replicaLagMillis;
+        transport.register(this);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public boolean isAlive() {
+        return alive;
+    }
+
+    public PartitionReplica getPartition(int topicId) {
+        return partitions.get(topicId);
+    }
+
+    public void addPartition(PartitionReplica partition) {
+        partitions.put(partition.getTopicId(), partition);
+    }
+
+    public synchronized void start() {
+        if (alive) return;
+        alive = true;
+        replicaFetcher = Executors.newSingleThreadScheduledExecutor();
+        replicaFetcher.scheduleWithFixedDelay(this::replicate, 0, fetchIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (!alive) return;
+        alive = false;
+        replicaFetcher.shutdownNow();
+    }
+
+    public long handleProduce(int topicId, Message message, Acks acks, long timeoutMillis, int minInSyncReplicas) {
+        PartitionReplica partition = leaderPartition(topicId);
+        if (acks == Acks.ALL && partition.getInSyncReplicas().size() < minInSyncReplicas) {
+            throw new RuntimeException("Not enough in-sync replicas for topic " + topicId);
+        }
+        long offset = partition.appendAsLeader(message);
+        if (acks != Acks.ALL) {
+            return offset;
+        }
+        try {
+            int replicas = partition.awaitCommitted(offset, timeoutMillis);
+            if (replicas == 0) {
+                throw new RuntimeException("Timed out waiting for in-sync replicas on topic " + topicId);
+            }
+            // the set may have shrunk while we waited, committed by too few copies isn't acks=all
+            if (replicas < minInSyncReplicas) {
+                throw new RuntimeException("Not enough in-sync replicas for topic " + topicId + " after append");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        return offset;
+    }
+
+    public FetchResult handleFetch(int topicId, int followerId, long fetchOffset, int maxBatch) {
+        PartitionReplica partition = leaderPartition(topicId);
+        Set<Integer> before = partition.getInSyncReplicas();
+        FetchResult result = partition.readForFollower(followerId, fetchOffset, maxBatch, replicaLagMillis);
+        partition.shrinkInSyncReplicas(replicaLagMillis);
+        publishIsrIfChanged(partition, before);
+        return result;
+    }
+
+    private PartitionReplica leaderPartition(int topicId) {
+        PartitionReplica partition = partitions.get(topicId);
+        if (!alive || partition == null || partition.getLeaderId() != id) {
+            throw new RuntimeException("Broker " + id + " is not the leader for topic " + topicId);
+        }
+        return partition;
+    }
+
+    private void replicate() {
+        for (PartitionReplica partition : partitions.values()) {
+            try {
+                int leaderId = partition.getLeaderId();
+                if (leaderId == id) {
+                    Set<Integer> before = partition.getInSyncReplicas();
+                    partition.shrinkInSyncReplicas(replicaLagMillis);
+                    publishIsrIfChanged(partition, before);
+                } else if (leaderId >= 0) {
+                    int epoch = partition.getLeaderEpoch();
+                    FetchResult result = transport.fetch(leaderId, partition.getTopicId(), id,
+                            partition.getLogEndOffset(), maxFetchBatch);
+                    if (result.leaderEpoch() == epoch && partition.getLeaderEpoch() == epoch) {
+                        partition.appendAsFollower(result);
+                    }
+                }
+            } catch (RuntimeException e) {
+                // leader unreachable or moved, the cluster will reassign and we retry on the next tick
+            }
+        }
+    }
+
+    // the cluster has to know about a shrink before the high watermark may move past the removed replicas,
+    // otherwise it could elect one of them and lose committed messages
+    private void publishIsrIfChanged(PartitionReplica partition, Set<Integer> before) {
+        Set<Integer> after = partition.getInSyncReplicas();
+        if (!after.equals(before)
+                && cluster.updateInSyncReplicas(partition.getTopicId(), partition.getLeaderEpoch(), after)) {
+            partition.markInSyncReplicasPublished(after);
+        }
+    }
+}
+
+class BrokerCluster {
+    private final Map<Integer, Broker> brokers;
+    private final List<Integer> brokerIds;
+    private final Map<Integer, List<Integer>> assignments;
+    private final Map<Integer, Integer> leaders;
+    private final Map<Integer, Integer> leaderEpochs;
+    private final Map<Integer, Set<Integer>> inSyncReplicas;
+    private final int replicationFactor;
+    private final int minInSyncReplicas;
+    private final long produceTimeoutMillis;
+
+    BrokerCluster(int brokerCount, int replicationFactor, int minInSyncReplicas, BrokerTransport transport,
+                  int maxFetchBatch, long fetchIntervalMillis, long replicaLagMillis, long produceTimeoutMillis) {
+        if (replicationFactor > brokerCount) {
+            throw new RuntimeException("Replication factor can't exceed broker count");
+        }
+        this.brokers = new ConcurrentHashMap<>();
+        this.brokerIds = new ArrayList<>();
+        this.assignments = new ConcurrentHashMap<>();
+        this.leaders = new ConcurrentHashMap<>();
+        this.leaderEpochs = new ConcurrentHashMap<>();
+        this.inSyncReplicas = new ConcurrentHashMap<>();
+        this.replicationFactor = replicationFactor;
+        this.minInSyncReplicas = minInSyncReplicas;
+        this.produceTimeoutMillis = produceTimeoutMillis;
+
+        for (int i = 0; i < brokerCount; i++) {
+            Broker broker = new Broker(i, transport, this, maxFetchBatch, fetchIntervalMillis, replicaLagMillis);
+            brokers.put(i, broker);
+            brokerIds.add(i);
+            broker.start();
+        }
+    }
+
+    public synchronized void createTopic(int topicId) {
+        List<Integer> replicas = new ArrayList<>();
+        for (int i = 0; i < replicationFactor; i++) {
+            replicas.add(brokerIds.get((topicId + i) % brokerIds.size()));
+        }
+        int leaderId = replicas.get(0);
+        Set<Integer> isr = Set.copyOf(replicas);
+
+        assignments.put(topicId, replicas);
+        leaders.put(topicId, leaderId);
+        leaderEpochs.put(topicId, 0);
+        inSyncReplicas.put(topicId, isr);
+
+        for (Integer replica : replicas) {
+            PartitionReplica partition = new PartitionReplica(topicId, replicas);
+            brokers.get(replica).addPartition(partition);
+            if (replica == leaderId) {
+                partition.becomeLeader(replica, 0, isr);
+            } else {
+                partition.becomeFollower(leaderId, 0);
+            }
+        }
+    }
+
+    public long produce(int topicId, Message message, Acks acks) {
+        try {
+            Broker leader = leaderFor(topicId);
+            return leader.handleProduce(topicId, message, acks, produceTimeoutMillis, minInSyncReplicas);
+        } catch (RuntimeException e) {
+            if (acks == Acks.NONE) return -1;
+            throw e;
+        }
+    }
+
+    public List<Message> readCommitted(int topicId, long fromOffset) {
+        return leaderFor(topicId).getPartition(topicId).readCommitted(fromOffset);
+    }
+
+    // false for a late update from a leader that has already been replaced
+    public synchronized boolean updateInSyncReplicas(int topicId, int leaderEpoch, Set<Integer> isr) {
+        if (leaderEpochs.getOrDefault(topicId, -1) != leaderEpoch) {
+            return false;
+        }
+        inSyncReplicas.put(topicId, isr);
+        return true;
+    }
+
+    public synchronized void failBroker(int brokerId) {
+        brokers.get(brokerId).stop();
+        for (Map.Entry<Integer, Integer> entry : leaders.entrySet()) {
+            if (entry.getValue() == brokerId) {
+                electLeader(entry.getKey(), -1);
+            }
+        }
+    }
+
+    public synchronized void restartBroker(int brokerId) {
+        Broker broker = brokers.get(brokerId);
+        for (Map.Entry<Integer, List<Integer>> entry : assignments.entrySet()) {
+            int topicId = entry.getKey();
+            Integer leaderId = leaders.get(topicId);
+            if (!entry.getValue().contains(brokerId) || leaderId == null) continue;
+            if (leaderId < 0) {
+                // partition went offline, the returning replica may be the last in-sync copy
+                electLeader(topicId, brokerId);
+            } else {
+                broker.getPartition(topicId).becomeFollower(leaderId, leaderEpochs.get(topicId));
+            }
+        }
+        broker.start();
+    }
+
+    public int getLeader(int topicId) {
+        return leaders.getOrDefault(topicId, -1);
+    }
+
+    public Set<Integer> getInSyncReplicas(int topicId) {
+        return inSyncReplicas.getOrDefault(topicId, Set.of());
+    }
+
+    public void shutdown() {
+        brokers.values().forEach(Broker::stop);
+    }
+
+    private Broker leaderFor(int topicId) {
+        Integer leaderId = leaders.get(topicId);
+        if (leaderId == null || leaderId < 0) {
+            throw new RuntimeException("No leader available for topic " + topicId);
+        }
+        return brokers.get(leaderId);
+    }
+
+    private void electLeader(int topicId, int returningBrokerId) {
+        Set<Integer> isr = new HashSet<>(inSyncReplicas.getOrDefault(topicId, Set.of()));
+        isr.removeIf(replica -> replica != returningBrokerId && !brokers.get(replica).isAlive());
+
+        Integer newLeaderId = assignments.get(topicId).stream().filter(isr::contains).findFirst().orElse(null);
+        if (newLeaderId == null) {
+            leaders.put(topicId, -1);
+            System.err.println("No in-sync replica available for topic " + topicId + ", partition offline");
+            return;
+        }
+
+        int epoch = leaderEpochs.merge(topicId, 1, Integer::sum);
+        leaders.put(topicId, newLeaderId);
+        inSyncReplicas.put(topicId, Set.copyOf(isr));
+
+        for (Integer replica : assignments.get(topicId)) {
+            PartitionReplica partition = brokers.get(replica).getPartition(topicId);
+            if (replica.equals(newLeaderId)) {
+                partition.becomeLeader(replica, epoch, isr);
+            } else if (replica == returningBrokerId || brokers.get(replica).isAlive()) {
+                partition.becomeFollower(newLeaderId, epoch);
+            }
+        }
+    }
+}
+
+class ReplicationDemo {
+    public static void main(String[] args) throws InterruptedException {
+        BrokerCluster cluster = new BrokerCluster(3, 3, 2, new InMemoryTransport(),
+                100, 10, 500, 2000);
+        KafkaController kafkaController = new KafkaController(cluster, Acks.ALL);
+        Topic topic = kafkaController.createTopic("Orders");
+        IPublisher publisher = new SimplePublisher("Publisher1", kafkaController);
+
+        for (int i = 0; i < 5; i++) {
+            publisher.publish(topic.getTopicId(), new Message("Order " + i));
+        }
+
+        int oldLeader = cluster.getLeader(topic.getTopicId());
+        cluster.failBroker(oldLeader);
+        System.out.println("Leader moved " + oldLeader + " -> " + cluster.getLeader(topic.getTopicId())
+                + ", isr " + cluster.getInSyncReplicas(topic.getTopicId()));
+
+        publisher.publish(topic.getTopicId(), new Message("Order 5"));
+        cluster.restartBroker(oldLeader);
+        Thread.sleep(100);
+
+        for (Message message : cluster.readCommitted(topic.getTopicId(), 0)) {
+            System.out.println("Committed: " + message.getMessage());
+        }
+        System.out.println("isr after restart " + cluster.getInSyncReplicas(topic.getTopicId()));
+
+        cluster.shutdown();
+        kafkaController.shutdown();
+    }
+}
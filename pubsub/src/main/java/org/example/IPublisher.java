@@ -0,0 +1,5 @@
+package org.example;
+
+interface IPublisher {
+    void publish(Integer topicId, Message message);
+}
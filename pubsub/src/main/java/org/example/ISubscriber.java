@@ -0,0 +1,5 @@
+package org.example;
+
+interface ISubscriber {
+    void onMessage(Message message) throws InterruptedException;
+}
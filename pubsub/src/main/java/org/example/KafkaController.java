@@ -0,0 +1,95 @@
+package org.example;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class KafkaController {
+    private final Map<Integer, Topic> topics;
+    private final Map<Integer, List<TopicSubscriber>> topicSubscribers;
+    private final ExecutorService executorService;
+    private final AtomicInteger topicIdCounter;
+    private final BrokerCluster brokerCluster;
+    private final Acks acks;
+
+    KafkaController() {
+        this(null, Acks.LEADER);
+    }
+
+    KafkaController(BrokerCluster brokerCluster, Acks acks) {
+        this.brokerCluster = brokerCluster;
+        this.acks = acks;
+        this.topics = new ConcurrentHashMap<>();
+        this.topicSubscribers = new ConcurrentHashMap<>();
+        this.executorService = Executors.newCachedThreadPool();
+        this.topicIdCounter = new AtomicInteger(0);
+    }
+
+    public Topic createTopic(String topicName) {
+        int topicId = this.topicIdCounter.getAndIncrement();
+        Topic topic = new Topic(topicName, topicId);
+        this.topics.put(topicId, topic);
+        this.topicSubscribers.put(topicId, new CopyOnWriteArrayList<>());
+        if (brokerCluster != null) {
+            brokerCluster.createTopic(topicId);
+        }
+        return topic;
+    }
+
+    public void subscribe(ISubscriber subscriber, Integer topicId) {
+        Topic topic = this.topics.get(topicId);
+        if (topic == null) {
+            System.err.println("Topic with id " + topicId + " does not exist");
+            return;
+        }
+        TopicSubscriber ts = new TopicSubscriber(topic, subscriber);
+        this.topicSubscribers.get(topicId).add(ts);
+        executorService.submit(new TopicSubscriberController(ts));
+    }
+
+    public void publish(IPublisher publisher, Integer topicId, Message message) {
+        Topic topic = this.topics.get(topicId);
+        if (topic == null) {
+            System.err.println("Topic with id " + topicId + " does not exist");
+            return;
+        }
+        // subscribers read the topic, which only gets what the cluster accepted
+        if (brokerCluster != null && brokerCluster.produce(topicId, message, acks) < 0) {
+            System.err.println("Message to topic " + topicId + " was not accepted by the cluster");
+            return;
+        }
+        topic.addMessage(message);
+        List<TopicSubscriber> ts = topicSubscribers.get(topicId);
+        for(TopicSubscriber topicSubscriber: ts) {
+            synchronized (topicSubscriber) {
+                topicSubscriber.notify();
+            }
+        }
+    }
+
+    public void resetOffset(Integer topicId, ISubscriber subscriber, int newOffset) {
+        List<TopicSubscriber> ts = topicSubscribers.get(topicId);
+        for(TopicSubscriber topicSubscriber: ts) {
+            if(topicSubscriber.getSubscriber().equals(subscriber)) {
+                topicSubscriber.getOffset().set(newOffset);
+                synchronized (topicSubscriber) {
+                    topicSubscriber.notify();
+                }
+                break;
+            }
+        }
+    }
+
+    public void shutdown() {
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
+                executorService.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+        }
+    }
+
+}
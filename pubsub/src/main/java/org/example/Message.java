@@ -0,0 +1,13 @@
+package org.example;
+
+class Message {
+    private final String message;
+
+    Message(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
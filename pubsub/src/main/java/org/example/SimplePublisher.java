@@ -0,0 +1,16 @@
+package org.example;
+
+class SimplePublisher implements IPublisher {
+    private final String id;
+    private final KafkaController kafkaController;
+
+    public SimplePublisher(String id, KafkaController kafkaController) {
+        this.id = id;
+        this.kafkaController = kafkaController;
+    }
+    @Override
+    public void publish(Integer topicId, Message message) {
+        kafkaController.publish(this, topicId, message);
+        System.out.println("Publisher " + id + " published: " + message.getMessage() + " to topic " + topicId);
+    }
+}
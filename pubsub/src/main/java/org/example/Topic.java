@@ -0,0 +1,32 @@
+package org.example;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+class Topic {
+    private final String topicName;
+    private final Integer topicId;
+    private final List<Message> messageList;
+
+    Topic(String topicName, Integer topicId) {
+        this.topicName = topicName;
+        this.topicId = topicId;
+        this.messageList = new CopyOnWriteArrayList<>();
+    }
+
+    public String getTopicName() {
+        return topicName;
+    }
+
+    public Integer getTopicId() {
+        return topicId;
+    }
+
+    public synchronized void addMessage(Message newMessage) {
+        messageList.add(newMessage);
+    }
+
+    public synchronized List<Message> getMessageList() {
+        return messageList;
+    }
+}
@@ -0,0 +1,27 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+class TopicSubscriber {
+    private final Topic topic;
+    private final ISubscriber subscriber;
+    private final AtomicInteger offset;
+
+    TopicSubscriber(Topic topic, ISubscriber subscriber) {
+        this.topic = topic;
+        this.subscriber = subscriber;
+        this.offset = new AtomicInteger(0);
+    }
+
+    public Topic getTopic() {
+        return topic;
+    }
+
+    public ISubscriber getSubscriber() {
+        return subscriber;
+    }
+
+    public AtomicInteger getOffset() {
+        return offset;
+    }
+}
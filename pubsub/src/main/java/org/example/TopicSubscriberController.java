@@ -0,0 +1,35 @@
+package org.example;
+
+class TopicSubscriberController implements Runnable {
+    private final TopicSubscriber topicSubscriber;
+
+    TopicSubscriberController(TopicSubscriber topicSubscriber) {
+        this.topicSubscriber = topicSubscriber;
+    }
+
+    @Override
+    public void run() {
+        Topic topic = topicSubscriber.getTopic();
+        ISubscriber subscriber = topicSubscriber.getSubscriber();
+        while(true) {
+            Message message = null;
+            synchronized (topicSubscriber) {
+                while(topicSubscriber.getOffset().get() >= topic.getMessageList().size()) {
+                    try {
+                        topicSubscriber.wait();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                int currentOffset = topicSubscriber.getOffset().getAndIncrement();
+                message = topic.getMessageList().get(currentOffset);
+            }
+
+            try {
+                subscriber.onMessage(message);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}